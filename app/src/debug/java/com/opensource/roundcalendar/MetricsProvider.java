@@ -0,0 +1,147 @@
+package com.opensource.roundcalendar;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.content.UriMatcher;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+    Read-only view of UpdateMetrics, available in debug builds only:
+        adb shell content query --uri content://com.opensource.roundcalendar.metrics/samples
+        adb shell content query --uri content://com.opensource.roundcalendar.metrics/percentiles
+    "samples" lists recent updates, oldest first. "percentiles" has a row per widget and metric, plus rows of all
+    widgets together with widget_id -1. A metric is taken only from the updates which have it, and its count is the
+    number of such updates: query metrics from updates which missed the events cache, picture metrics from updates
+    which drew the picture, not only the texts, and skew from updates triggered by a tick.
+ */
+public class MetricsProvider extends ContentProvider {
+
+    private static final String authority = "com.opensource.roundcalendar.metrics";
+    private static final int samplesPath = 1;
+    private static final int percentilesPath = 2;
+    private static final String[] percentileColumns = {"widget_id", "metric", "count", "p50", "p90", "p95", "p99",
+            "max"};
+    private static final int allWidgets = -1;
+
+    private static final UriMatcher uriMatcher = new UriMatcher(UriMatcher.NO_MATCH);
+
+    static {
+        uriMatcher.addURI(authority, "samples", samplesPath);
+        uriMatcher.addURI(authority, "percentiles", percentilesPath);
+    }
+
+    @Override
+    public boolean onCreate() {
+        return true;
+    }
+
+    @Override
+    public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
+        switch (uriMatcher.match(uri)) {
+            case samplesPath:
+                return querySamples();
+            case percentilesPath:
+                return queryPercentiles();
+            default:
+                throw new IllegalArgumentException("Unknown uri: " + uri);
+        }
+    }
+
+    private static Cursor querySamples() {
+        MatrixCursor cursor = new MatrixCursor(UpdateMetrics.columns);
+        int size = UpdateMetrics.getSize();
+        for (int row = 0; row < size; row++) {
+            Object[] values = new Object[UpdateMetrics.columns.length];
+            for (int column = 0; column < values.length; column++) {
+                values[column] = UpdateMetrics.get(row, column);
+            }
+            cursor.addRow(values);
+        }
+        return cursor;
+    }
+
+    private static Cursor queryPercentiles() {
+        int size = UpdateMetrics.getSize();
+        List<Long> widgetIds = new ArrayList<>();
+        widgetIds.add((long) allWidgets);
+        for (int row = 0; row < size; row++) {
+            long widgetId = UpdateMetrics.get(row, UpdateMetrics.widgetIdColumn);
+            if (!widgetIds.contains(widgetId)) {
+                widgetIds.add(widgetId);
+            }
+        }
+
+        MatrixCursor cursor = new MatrixCursor(percentileColumns);
+        long[] values = new long[size];
+        for (long widgetId : widgetIds) {
+            for (int column = UpdateMetrics.firstValueColumn; column < UpdateMetrics.columns.length; column++) {
+                int count = 0;
+                for (int row = 0; row < size; row++) {
+                    if (widgetId != allWidgets && UpdateMetrics.get(row, UpdateMetrics.widgetIdColumn) != widgetId) {
+                        continue;
+                    }
+                    if (!hasValue(row, column)) {
+                        continue;
+                    }
+                    values[count++] = UpdateMetrics.get(row, column);
+                }
+                if (count == 0) {
+                    continue;
+                }
+                Arrays.sort(values, 0, count);
+                cursor.addRow(new Object[] {widgetId, UpdateMetrics.columns[column], count,
+                        percentile(values, count, 50), percentile(values, count, 90),
+                        percentile(values, count, 95), percentile(values, count, 99), values[count - 1]});
+            }
+        }
+        return cursor;
+    }
+
+    private static boolean hasValue(int row, int column) {
+        switch (column) {
+            case UpdateMetrics.queryColumn:
+            case UpdateMetrics.queryRowsColumn:
+                return UpdateMetrics.get(row, UpdateMetrics.cacheMissesColumn) > 0;
+            case UpdateMetrics.eventsColumn:
+            case UpdateMetrics.rasterColumn:
+            case UpdateMetrics.bitmapBytesColumn:
+                return UpdateMetrics.get(row, UpdateMetrics.bitmapBytesColumn) > 0;
+            case UpdateMetrics.skewColumn:
+                return UpdateMetrics.get(row, UpdateMetrics.skewColumn) != UpdateMetrics.noSkew;
+            default:
+                return true;
+        }
+    }
+
+    // Nearest-rank percentile of the sorted values
+    private static long percentile(long[] sorted, int count, int percent) {
+        int rank = (int) Math.ceil(percent / 100.0 * count);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+
+    @Override
+    public String getType(Uri uri) {
+        return null;
+    }
+
+    @Override
+    public Uri insert(Uri uri, ContentValues values) {
+        throw new UnsupportedOperationException("Metrics are read-only");
+    }
+
+    @Override
+    public int delete(Uri uri, String selection, String[] selectionArgs) {
+        throw new UnsupportedOperationException("Metrics are read-only");
+    }
+
+    @Override
+    public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+        throw new UnsupportedOperationException("Metrics are read-only");
+    }
+}
@@ -2,6 +2,7 @@ package com.opensource.roundcalendar;
 
 import android.content.ContentUris;
 import android.content.Context;
+import android.database.ContentObserver;
 import android.database.Cursor;
 import android.net.Uri;
 import android.provider.CalendarContract;
@@ -10,31 +11,71 @@ import android.util.Log;
 
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static android.provider.CalendarContract.Calendars.ACCOUNT_NAME;
 import static android.provider.CalendarContract.Calendars._ID;
 import static android.provider.CalendarContract.Calendars.CALENDAR_DISPLAY_NAME;
+import static android.provider.CalendarContract.Calendars.CALENDAR_COLOR;
+import static android.provider.CalendarContract.Calendars.VISIBLE;
 import static android.provider.CalendarContract.Events.TITLE;
-import static android.provider.CalendarContract.Events.DTSTART;
-import static android.provider.CalendarContract.Events.DTEND;
-import static android.provider.CalendarContract.Events.DURATION;
 import static android.provider.CalendarContract.Events.ALL_DAY;
 import static android.provider.CalendarContract.Events.CALENDAR_ID;
 import static android.provider.CalendarContract.Events.DISPLAY_COLOR;
+import static android.provider.CalendarContract.Instances.BEGIN;
+import static android.provider.CalendarContract.Instances.END;
 import static com.opensource.roundcalendar.Logging.TAG;
 
 class CalendarAdapter {
 
     private static CalendarAdapter instance = null;
 
+    // Enough for a few widgets navigated back and forth over a couple of weeks
+    private static final int maxCachedDays = 32;
+    // Days around the viewed one, which are loaded in background while user navigates the widget
+    private static final int prefetchDaysBefore = 7;
+    private static final int prefetchDaysAfter = 7;
+
+    // Instance bounds rather than DTSTART/DTEND: for a recurring event those are the bounds of its first instance
+    private static final String[] eventsProjection = new String[] {TITLE, BEGIN, END, ALL_DAY, DISPLAY_COLOR};
+    // column indexes in eventsProjection
+    private static final int titleColumn = 0;
+    private static final int instanceBeginColumn = 1;
+    private static final int instanceEndColumn = 2;
+    private static final int allDayColumn = 3;
+    private static final int colorColumn = 4;
+
+    private static final ExecutorService prefetchExecutor = Executors.newSingleThreadExecutor();
+
     private Context context;
     private List<String> calendarIds;
     private int daysShift;
 
+    // Day events keyed by (day start, selected calendar IDs), least recently used day is evicted first
+    private final Map<String, DayEvents> eventsCache = new LinkedHashMap<String, DayEvents>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, DayEvents> eldest) {
+            return size() > maxCachedDays;
+        }
+    };
+    // Incremented on every invalidation, so a query started before a calendar change is not cached
+    private long cacheGeneration = 0;
+    private ContentObserver calendarObserver = null;
+    private final Calendar dayStartCalendar = Calendar.getInstance();
+    private final Calendar nextDayStartCalendar = Calendar.getInstance();
+    // Recently used cache keys, two of them as the countdown looks into the next day as well
+    private final String[] recentCacheKeys = new String[2];
+    private final long[] recentCacheKeyDayStarts = new long[2];
+    private final Object[] recentCacheKeyCalendarIds = new Object[2];
+    private int nextCacheKeySlot = 0;
 
-    public static CalendarAdapter getInstance() {
+    // Taken from the UI, render and prefetch threads
+    public static synchronized CalendarAdapter getInstance() {
         if (instance == null) instance = new CalendarAdapter();
         return instance;
     }
@@ -45,6 +86,7 @@ class CalendarAdapter {
 
     public void setContext(Context context) {
         this.context = context;
+        registerCalendarObserver(context);
     }
 
     public void setDaysShift(int daysShift) {
@@ -53,11 +95,14 @@ class CalendarAdapter {
 
     static List<CalendarInfo> getCalendars(Context context) {
         Uri uri = CalendarContract.Calendars.CONTENT_URI;
-        final String[] projection = new String[] {_ID, ACCOUNT_NAME, CALENDAR_DISPLAY_NAME};
+        final String[] projection = new String[] {_ID, ACCOUNT_NAME, CALENDAR_DISPLAY_NAME, CALENDAR_COLOR, VISIBLE};
         Cursor cursor = context.getContentResolver().query(uri, projection, null /*selection*/, null /*selectionArgs*/,
                 null /*sortOrder*/);
         if (cursor == null || cursor.getCount() == 0) {
             Log.e(TAG, "No results");
+            if (cursor != null) {
+                cursor.close();
+            }
             return null;
         }
 
@@ -65,9 +110,11 @@ class CalendarAdapter {
         cursor.moveToFirst();
         Log.d(TAG, "Calendars list:");
         do {
-            CalendarInfo info = new CalendarInfo(Integer.parseInt(cursor.getString(0)), cursor.getString(1),
-                    cursor.getString(2));
-            Log.d(TAG, info.toDebugString());
+            CalendarInfo info = new CalendarInfo(cursor.getInt(0), cursor.getString(1), cursor.getString(2),
+                    cursor.getInt(3), cursor.getInt(4) == 1);
+            if (Logging.DEBUG) {
+                Logging.d(info.toDebugString());
+            }
             calendarInfoList.add(info);
         } while (cursor.moveToNext());
 
@@ -75,11 +122,178 @@ class CalendarAdapter {
         return calendarInfoList;
     }
 
-    List<Event> getTodayEvents() {
+    EventBuffer getTodayEventBuffer() {
+        return getDayEvents(getDayStart()).getEventBuffer();
+    }
+
+    DayEvents getDayEvents(long dayStart) {
+        String cacheKey = getCacheKey(dayStart, calendarIds);
+        DayEvents dayEvents;
+        long generation;
+        synchronized (eventsCache) {
+            dayEvents = eventsCache.get(cacheKey);
+            generation = cacheGeneration;
+        }
+
+        if (dayEvents == null) {
+            Tracing.begin(Tracing.loadDayEvents);
+            long queryStart = System.nanoTime();
+            try {
+                dayEvents = new DayEvents(queryDayEvents(dayStart), dayStart, dayStart + DateUtils.DAY_IN_MILLIS);
+            } finally {
+                Tracing.end();
+            }
+            UpdateMetrics.addQuery(System.nanoTime() - queryStart, dayEvents.getEventBuffer().getSize());
+            synchronized (eventsCache) {
+                if (generation == cacheGeneration) {
+                    eventsCache.put(cacheKey, dayEvents);
+                }
+            }
+        } else if (Logging.DEBUG) {
+            Logging.d("Day events taken from cache");
+        }
+        return dayEvents;
+    }
+
+    void invalidateEventsCache() {
+        synchronized (eventsCache) {
+            eventsCache.clear();
+            cacheGeneration++;
+        }
+    }
+
+    // Loads the window of days around the viewed one with a single range query and splits it to per-day cache
+    // entries, so day/week navigation hits memory instead of the provider.
+    void prefetchSurroundingDays() {
+        final Context applicationContext = context.getApplicationContext();
+        final List<String> ids = (calendarIds != null) ? new ArrayList<>(calendarIds) : null;
+        final Calendar firstDay = getDayStartCalendar();
+        firstDay.add(Calendar.DAY_OF_MONTH, -prefetchDaysBefore);
+        prefetchExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                int traceCookie = Tracing.beginAsync(Tracing.prefetchDays);
+                try {
+                    prefetchDays(applicationContext, ids, firstDay, prefetchDaysBefore + prefetchDaysAfter + 1);
+                } finally {
+                    Tracing.endAsync(Tracing.prefetchDays, traceCookie);
+                }
+            }
+        });
+    }
+
+    private void prefetchDays(Context context, List<String> ids, Calendar firstDay, int daysCount) {
+        long[] dayStarts = new long[daysCount];
+        int[] dayNumbers = new int[daysCount];
+        String[] cacheKeys = new String[daysCount];
+        Calendar day = (Calendar) firstDay.clone();
+        for (int i = 0; i < daysCount; i++) {
+            dayStarts[i] = day.getTimeInMillis();
+            dayNumbers[i] = day.get(Calendar.DATE);
+            cacheKeys[i] = buildCacheKey(dayStarts[i], ids);
+            day.add(Calendar.DAY_OF_MONTH, 1);
+        }
+
+        int firstMissing = -1;
+        int lastMissing = -1;
+        long generation;
+        synchronized (eventsCache) {
+            for (int i = 0; i < daysCount; i++) {
+                if (!eventsCache.containsKey(cacheKeys[i])) {
+                    firstMissing = (firstMissing == -1) ? i : firstMissing;
+                    lastMissing = i;
+                }
+            }
+            generation = cacheGeneration;
+        }
+        if (firstMissing == -1) {
+            Log.d(TAG, "Surrounding days are already cached");
+            return;
+        }
+
+        List<List<Event>> dayBuckets = new ArrayList<>();
+        for (int i = firstMissing; i <= lastMissing; i++) {
+            dayBuckets.add(new ArrayList<Event>());
+        }
+
+        Cursor cursor = queryInstances(context, ids, dayStarts[firstMissing],
+                dayStarts[lastMissing] + DateUtils.DAY_IN_MILLIS);
+        if (cursor != null) {
+            Tracing.begin(Tracing.readEvents);
+            try {
+                while (cursor.moveToNext()) {
+                    Event event = readEvent(cursor);
+                    long begin = event.getStartTimeLong();
+                    long end = event.getFinishTimeLong();
+                    for (int i = firstMissing; i <= lastMissing; i++) {
+                        // same inclusive bounds the provider uses for a single day query
+                        boolean overlapsDay = (begin <= dayStarts[i] + DateUtils.DAY_IN_MILLIS)
+                                && (end >= dayStarts[i]);
+                        if (overlapsDay && !isEndedAllDayEvent(event, dayNumbers[i])) {
+                            dayBuckets.get(i - firstMissing).add(event);
+                        }
+                    }
+                }
+            } finally {
+                Tracing.end();
+            }
+            cursor.close();
+        }
+        Log.d(TAG, "Prefetched " + dayBuckets.size() + " days");
+
+        synchronized (eventsCache) {
+            if (generation != cacheGeneration) {
+                return; // calendar changed while querying
+            }
+            for (int i = firstMissing; i <= lastMissing; i++) {
+                if (!eventsCache.containsKey(cacheKeys[i])) {
+                    eventsCache.put(cacheKeys[i], new DayEvents(dayBuckets.get(i - firstMissing), dayStarts[i],
+                            dayStarts[i] + DateUtils.DAY_IN_MILLIS));
+                }
+            }
+        }
+    }
+
+    private List<Event> queryDayEvents(long dayStart) {
+        Cursor cursor = queryInstances(context, calendarIds, dayStart, dayStart + DateUtils.DAY_IN_MILLIS);
+
+        List<Event> events = new ArrayList<>();
+        if (cursor != null && cursor.getCount() != 0) {
+            cursor.moveToFirst();
+        } else {
+            Log.w(TAG, "No events for today");
+            if (cursor != null) {
+                cursor.close();
+            }
+            return events;
+        }
+
+        Log.d(TAG, "Day events:");
+        Calendar day = Calendar.getInstance();
+        day.setTimeInMillis(dayStart);
+        int dayNumber = day.get(Calendar.DATE);
+        Tracing.begin(Tracing.readEvents);
+        try {
+            do {
+                Event event = readEvent(cursor);
+                if (isEndedAllDayEvent(event, dayNumber)) {
+                    continue;
+                }
+                events.add(event);
+            } while (cursor.moveToNext());
+        } finally {
+            Tracing.end();
+        }
+        Log.d(TAG, "Total: " + events.size());
+
+        cursor.close();
+        return events;
+    }
+
+    private static Cursor queryInstances(Context context, List<String> calendarIds, long begin, long end) {
         Uri.Builder builder = Uri.parse("content://com.android.calendar/instances/when").buildUpon();
-        long dayStart = getDayStart();
-        ContentUris.appendId(builder, dayStart);
-        ContentUris.appendId(builder, dayStart + DateUtils.DAY_IN_MILLIS);
+        ContentUris.appendId(builder, begin);
+        ContentUris.appendId(builder, end);
 
         String where = null;
         String[] selectionArgs = null;
@@ -93,68 +307,128 @@ class CalendarAdapter {
             where = whereBuilder.toString();
             selectionArgs = calendarIds.toArray(new String[0]);
         }
-        
-        Cursor cursor = context.getContentResolver().query(builder.build(),
-                new String[] {TITLE, DTSTART, DTEND, DURATION, ALL_DAY, DISPLAY_COLOR}, where, selectionArgs, DTSTART);
 
-        List<Event> events = new ArrayList<>();
-        if (cursor != null && cursor.getCount() != 0) {
-            cursor.moveToFirst();
-        } else {
-            Log.w(TAG, "No events for today");
-            return events;
+        Tracing.begin(Tracing.queryInstances);
+        try {
+            return context.getContentResolver().query(builder.build(), eventsProjection, where, selectionArgs,
+                    BEGIN);
+        } finally {
+            Tracing.end();
         }
+    }
 
-        Log.d(TAG, "Today events:");
-        do {
-            Event event = new Event(cursor.getString(0), cursor.getString(1), cursor.getString(2), cursor.getString(3),
-                    cursor.getString(4), Integer.parseInt(cursor.getString(5)));
+    private static Event readEvent(Cursor cursor) {
+        long start = cursor.getLong(instanceBeginColumn);
+        long finish = cursor.getLong(instanceEndColumn);
+        String title = cursor.getString(titleColumn);
+        boolean allDay = cursor.getInt(allDayColumn) == 1;
+        if (Logging.DEBUG) {
+            Logging.d("Creating event.\nTitle: %s\nStart: %2$td.%2$tm.%2$ty %2$tH:%2$tM (%2$d)" +
+                    "\nFinish: %3$td.%3$tm.%3$ty %3$tH:%3$tM (%3$d)\nAll-day: %4$b\n",
+                    title, start, finish, allDay);
+        }
+        return new Event(title, start, finish, 0, allDay, cursor.getInt(colorColumn));
+    }
 
-            int todayDayNumber = getDayOfMonth();
-            if ( event.isAllDay() && (event.getFinishDate() == todayDayNumber) ) {
-                continue; // all-day event, which actually ended yesterday, but have finish time today at 3:00
+    private static boolean isEndedAllDayEvent(Event event, int dayNumber) {
+        // all-day event, which actually ended yesterday, but have finish time today at 3:00
+        return event.isAllDay() && (event.getFinishDate() == dayNumber);
+    }
+
+    // Redraws of the same day reuse the recent keys instead of building them again
+    private String getCacheKey(long dayStart, List<String> calendarIds) {
+        synchronized (eventsCache) {
+            for (int i = 0; i < recentCacheKeys.length; i++) {
+                if (recentCacheKeys[i] != null && recentCacheKeyDayStarts[i] == dayStart
+                        && recentCacheKeyCalendarIds[i] == calendarIds) {
+                    return recentCacheKeys[i];
+                }
             }
-            events.add(event);
-        } while (cursor.moveToNext());
-        Log.d(TAG, "Total: " + events.size());
+            int slot = nextCacheKeySlot;
+            nextCacheKeySlot = (slot + 1) % recentCacheKeys.length;
+            recentCacheKeys[slot] = buildCacheKey(dayStart, calendarIds);
+            recentCacheKeyDayStarts[slot] = dayStart;
+            recentCacheKeyCalendarIds[slot] = calendarIds;
+            return recentCacheKeys[slot];
+        }
+    }
 
-        cursor.close();
-        return events;
+    private static String buildCacheKey(long dayStart, List<String> calendarIds) {
+        if (calendarIds == null || calendarIds.isEmpty()) {
+            return dayStart + ":all";
+        }
+        // IDs come from a preferences string set, so their order is not stable
+        List<String> sortedIds = new ArrayList<>(calendarIds);
+        Collections.sort(sortedIds);
+        return dayStart + ":" + sortedIds;
     }
 
-    ////////
-    long getTimeToNextEvent(){
-        long currentTime = System.currentTimeMillis();
-        List<Event> allEvents = getTodayEvents();
-        long minDistance = Long.MAX_VALUE;
-        Event minEvent = null;
-        for (Event event: allEvents){
-            long distance = event.getStartTimeLong() - currentTime;
-            if (distance < minDistance && distance >= 0){
-                minDistance = distance;
-                minEvent = event;
+    private synchronized void registerCalendarObserver(Context context) {
+        if (calendarObserver != null) {
+            return;
+        }
+        calendarObserver = new ContentObserver(null) {
+            @Override
+            public void onChange(boolean selfChange) {
+                Log.d(TAG, "Calendar data changed, dropping events cache");
+                invalidateEventsCache();
             }
+        };
+        // application context outlives the widget/activity context the adapter was configured with
+        Context applicationContext = context.getApplicationContext();
+        applicationContext.getContentResolver().registerContentObserver(CalendarContract.Instances.CONTENT_URI, true,
+                calendarObserver);
+        applicationContext.getContentResolver().registerContentObserver(CalendarContract.Events.CONTENT_URI, true,
+                calendarObserver);
+    }
+
+    // Start time of the nearest timed event which starts from now on, looking into the next day as well. 0 if there is
+    // none.
+    long getTimeToNextEvent() {
+        long currentTime = System.currentTimeMillis();
+        long nextStartTime = getDayEvents(getDayStart()).findNextStartTime(currentTime);
+        if (nextStartTime == 0) {
+            nextStartTime = getDayEvents(getNextDayStart()).findNextStartTime(currentTime);
         }
-        return minEvent != null ? minEvent.getStartTimeLong() : 0 ;
+        return nextStartTime;
     }
 
     Calendar getDayStartCalendar() {
         Calendar calendar = Calendar.getInstance();
+        setDayStart(calendar);
+        return calendar;
+    }
+
+    private void setDayStart(Calendar calendar) {
+        calendar.setTimeInMillis(System.currentTimeMillis());
         calendar.set(
                 calendar.get(Calendar.YEAR),
                 calendar.get(Calendar.MONTH),
                 calendar.get(Calendar.DAY_OF_MONTH),
                 0, 0, 0);
+        calendar.set(Calendar.MILLISECOND, 0); // day start is used as a cache key, so it should be stable
         calendar.add(Calendar.DAY_OF_MONTH, daysShift);
-        return calendar;
     }
 
     boolean isCalendarShifted() {
         return (daysShift != 0);
     }
 
-    private long getDayStart() {
-        return getDayStartCalendar().getTime().getTime();
+    // Called on every redraw, so it reuses the same Calendar object
+    long getDayStart() {
+        synchronized (dayStartCalendar) {
+            setDayStart(dayStartCalendar);
+            return dayStartCalendar.getTimeInMillis();
+        }
+    }
+
+    // Start of the day after the shown one, reuses the same Calendar object like getDayStart()
+    private long getNextDayStart() {
+        synchronized (nextDayStartCalendar) {
+            setDayStart(nextDayStartCalendar);
+            nextDayStartCalendar.add(Calendar.DAY_OF_MONTH, 1);
+            return nextDayStartCalendar.getTimeInMillis();
+        }
     }
 
     public int getDayOfMonth() {
@@ -12,18 +12,27 @@ public class CalendarInfo {
     @Getter private int id;
     @Getter private String account;
     @Getter private String name;
+    @Getter private int color;
+    @Getter private boolean visible;
     @Setter @Getter private boolean selected = true;
 
     private static int ALL_CALENDARS_ID = -100;
 
-    CalendarInfo(int id, String account, String name) {
+    CalendarInfo(int id, String account, String name, int color, boolean visible) {
         this.id = id;
         this.account = account;
         this.name = name;
+        this.color = color;
+        this.visible = visible;
+    }
+
+    CalendarInfo(CalendarInfo other) {
+        this(other.id, other.account, other.name, other.color, other.visible);
+        this.selected = other.selected;
     }
 
     CalendarInfo() {
-        this(ALL_CALENDARS_ID, null, null);
+        this(ALL_CALENDARS_ID, null, null, 0, true);
     }
 
     @NonNull @Override
@@ -32,7 +41,8 @@ public class CalendarInfo {
     }
 
     String toDebugString() {
-        return String.format(Locale.getDefault(), "ID: %d; account: %s; name: %s", id, account, name);
+        return String.format(Locale.getDefault(), "ID: %d; account: %s; name: %s; color: %08X; visible: %b", id,
+                account, name, color, visible);
     }
 
     boolean isAllItem() {
@@ -0,0 +1,111 @@
+package com.opensource.roundcalendar;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.CalendarContract;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.opensource.roundcalendar.Logging.TAG;
+
+// Calendars metadata (names, colors, visibility), loaded in background and reloaded only after the Calendars table
+// was changed.
+class CalendarsCache {
+
+    interface Listener {
+        void onCalendarsLoaded(List<CalendarInfo> calendars);
+    }
+
+    private static CalendarsCache instance = null;
+
+    private final ExecutorService loadExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private List<CalendarInfo> calendars = null; // null if not loaded yet or outdated
+    private ContentObserver calendarsObserver = null;
+
+
+    static synchronized CalendarsCache getInstance() {
+        if (instance == null) instance = new CalendarsCache();
+        return instance;
+    }
+
+    // Listener is called on the main thread with a private copy of the list, which may be freely modified.
+    void getCalendars(Context context, final Listener listener) {
+        final Context applicationContext = context.getApplicationContext();
+        registerCalendarsObserver(applicationContext);
+
+        List<CalendarInfo> cached = getCachedCopy();
+        if (cached != null) {
+            Log.d(TAG, "Calendars taken from cache");
+            listener.onCalendarsLoaded(cached);
+            return;
+        }
+
+        loadExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                List<CalendarInfo> loaded = getCachedCopy(); // may be loaded by previous request meanwhile
+                if (loaded == null) {
+                    int traceCookie = Tracing.beginAsync(Tracing.loadCalendars);
+                    try {
+                        loaded = CalendarAdapter.getCalendars(applicationContext);
+                    } finally {
+                        Tracing.endAsync(Tracing.loadCalendars, traceCookie);
+                    }
+                    if (loaded == null) {
+                        loaded = new ArrayList<>();
+                    }
+                    synchronized (CalendarsCache.this) {
+                        calendars = loaded;
+                    }
+                    loaded = getCachedCopy();
+                }
+
+                final List<CalendarInfo> result = loaded;
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onCalendarsLoaded(result);
+                    }
+                });
+            }
+        });
+    }
+
+    private synchronized List<CalendarInfo> getCachedCopy() {
+        if (calendars == null) {
+            return null;
+        }
+        // selection state is changed by the configuration screen, so cached items are never handed out
+        List<CalendarInfo> copy = new ArrayList<>(calendars.size());
+        for (CalendarInfo info : calendars) {
+            copy.add(new CalendarInfo(info));
+        }
+        return copy;
+    }
+
+    private synchronized void invalidate() {
+        calendars = null;
+    }
+
+    private synchronized void registerCalendarsObserver(Context applicationContext) {
+        if (calendarsObserver != null) {
+            return;
+        }
+        calendarsObserver = new ContentObserver(null) {
+            @Override
+            public void onChange(boolean selfChange) {
+                Log.d(TAG, "Calendars list changed, dropping calendars cache");
+                invalidate();
+            }
+        };
+        applicationContext.getContentResolver().registerContentObserver(CalendarContract.Calendars.CONTENT_URI, true,
+                calendarsObserver);
+    }
+}
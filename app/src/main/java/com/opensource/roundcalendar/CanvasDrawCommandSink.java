@@ -0,0 +1,86 @@
+package com.opensource.roundcalendar;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+
+import lombok.Getter;
+
+// Android backend of the clock draw commands: draws them onto a Canvas with paints set up for the geometry
+class CanvasDrawCommandSink implements DrawCommandSink {
+
+    private static final int borderWidth = 6;
+    private static final int handColor = ClockColors.red;
+
+    private Canvas canvas;
+    private final Paint arcPaint;
+    private final Paint[] stylePaints = new Paint[4];
+    @Getter private final Paint titlePaint;
+    private final RectF oval = new RectF();
+
+    CanvasDrawCommandSink(ClockGeometry geometry) {
+        arcPaint = new Paint();
+        arcPaint.setStyle(Paint.Style.STROKE);
+
+        Paint borderPaint = new Paint();
+        borderPaint.setStyle(Paint.Style.STROKE);
+        borderPaint.setColor(ClockColors.black);
+        borderPaint.setStrokeWidth(borderWidth);
+
+        Paint handPaint = new Paint();
+        handPaint.setColor(handColor);
+        handPaint.setStrokeWidth(geometry.getHandWidth());
+
+        Paint digitPaint = new Paint();
+        digitPaint.setTextSize(geometry.getBigDigitSize());
+        digitPaint.setTextAlign(Paint.Align.CENTER);
+        digitPaint.setColor(geometry.getDigitColor());
+
+        titlePaint = new Paint();
+        titlePaint.setTextSize(geometry.getTitleSize());
+        titlePaint.setColor(geometry.getEventTitleColor());
+
+        stylePaints[styleBorder] = borderPaint;
+        stylePaints[styleHand] = handPaint;
+        stylePaints[styleDigit] = digitPaint;
+        stylePaints[styleTitle] = titlePaint;
+        arcPaint.setAntiAlias(true);
+        for (Paint p : stylePaints) {
+            p.setAntiAlias(true);
+        }
+    }
+
+    void setCanvas(Canvas canvas) {
+        this.canvas = canvas;
+    }
+
+    @Override
+    public void arc(ClockRect oval, float startAngle, float sweepAngle, float strokeWidth, int color) {
+        this.oval.set(oval.left, oval.top, oval.right, oval.bottom);
+        arcPaint.setStrokeWidth(strokeWidth);
+        arcPaint.setColor(color);
+        canvas.drawArc(this.oval, startAngle, sweepAngle, false, arcPaint);
+    }
+
+    @Override
+    public void line(float startX, float startY, float stopX, float stopY, int style) {
+        canvas.drawLine(startX, startY, stopX, stopY, stylePaints[style]);
+    }
+
+    @Override
+    public void circle(float centerX, float centerY, float radius, int style) {
+        canvas.drawCircle(centerX, centerY, radius, stylePaints[style]);
+    }
+
+    @Override
+    public void text(String text, float x, float y, float rotation, int style) {
+        if (rotation == 0) {
+            canvas.drawText(text, x, y, stylePaints[style]);
+            return;
+        }
+        canvas.save();
+        canvas.rotate(rotation, x, y);
+        canvas.drawText(text, x, y, stylePaints[style]);
+        canvas.restore();
+    }
+}
@@ -1,36 +1,50 @@
 package com.opensource.roundcalendar;
 
-import android.app.Application;
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.Picture;
 import android.graphics.Point;
-import android.graphics.Rect;
-import android.graphics.RectF;
-import android.support.v4.graphics.ColorUtils;
 import android.support.v7.widget.AppCompatImageView;
 import android.widget.RemoteViews;
-import android.widget.TextView;
 
-import java.text.Format;
-import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
 
 
+/*
+    Android side of the clock: ClockScene lays the clock out into draw commands, and they are drawn onto a Canvas
+    through CanvasDrawCommandSink. Once warm (same widget, same events, same minute), drawAll() doesn't allocate: the
+    scene memoizes everything derived from events per EventBuffer, and event arcs and titles are recorded into a
+    Picture and only replayed, until calendar data changes or one more event ends.
+ */
 public class ClockView extends AppCompatImageView
 {
-    private Map<String, Paint> paints;
-    private ClockWidget clockWidget;
+    private ClockGeometry clockGeometry;
+    private ClockScene clockScene;
+    private CanvasDrawCommandSink canvasSink;
     private static final int backgroundColor = Color.TRANSPARENT;
     private static final int refreshTimeoutMillis = 1800000; // 30 minutes - minimal valid value
+    // dial is drawn onto a scaled canvas when the widget bitmap is smaller than the widget
+    private static final Paint dialPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
     private CalendarAdapter calendarAdapter = null;
-    private boolean useCalendarColors = false;
+
+    private final Calendar now = Calendar.getInstance();
+
+    // static dial, drawn once: clock views are cached per widget size, and the size of a view never changes
+    private Bitmap dialLayer = null;
+
+    // event arcs and titles, recorded once and replayed until events, their ended state or colors change
+    private final Picture eventLayer = new Picture();
+    private EventBuffer eventLayerEvents = null;
+    private long eventLayerFingerprint = 0;
+
+    // only hand moves by the update period step redraw the picture, ticks in between change the texts
+    private int handStepMinutes = 1;
+
+    private long memoMinutesToNextEvent = Long.MIN_VALUE;
+    private String nextEventText = "";
 
 
     public ClockView(Context context)
@@ -41,338 +55,176 @@ public class ClockView extends AppCompatImageView
     public ClockView(Context context, Point screenSize, boolean useCalendarColors)
     {
         super(context);
-        this.useCalendarColors = useCalendarColors;
-        clockWidget = new ClockWidget(screenSize);
-        paints = initPaints();
+        clockGeometry = ClockGeometry.get(screenSize.x, screenSize.y,
+                context.getResources().getDisplayMetrics().density);
+        canvasSink = new CanvasDrawCommandSink(clockGeometry);
+        clockScene = new ClockScene(clockGeometry, new TextMeasurer() {
+            @Override
+            public MeasuredText fit(String text, float maxWidth) {
+                return TextLayoutCache.get(canvasSink.getTitlePaint(), text, maxWidth);
+            }
+        }, useCalendarColors);
     }
 
+    void setUseCalendarColors(boolean useCalendarColors) {
+        clockScene.setUseCalendarColors(useCalendarColors);
+    }
 
-    private Map<String, Paint> initPaints()
-    {
-        Map <String, Paint> paints = new HashMap<>();
-        Paint ringPaint = new Paint();
-        ringPaint.setColor(Color.BLACK);
-        ringPaint.setStrokeWidth(clockWidget.getPaddingRadius()*2);
-        ringPaint.setAntiAlias(true);
-        ringPaint.setStyle(Paint.Style.STROKE);
-        ringPaint.setAlpha(70);
-        paints.put("ring", ringPaint);
-
-        Paint borderPaint = new Paint();
-        borderPaint.setStyle(Paint.Style.STROKE);
-        borderPaint.setColor(Color.BLACK);
-        borderPaint.setStrokeWidth(6);
-        paints.put("border", borderPaint);
-
-        Paint clockHandPaint = new Paint();
-        clockHandPaint.setColor(Color.RED);
-        clockHandPaint.setStrokeWidth(clockWidget.getHandWidth());
-        paints.put("hand", clockHandPaint);
-
-        Paint bigDigitsPaint = new Paint();
-        bigDigitsPaint.setTextSize(clockWidget.getBigDigitSize());
-        bigDigitsPaint.setTextAlign(Paint.Align.CENTER);
-        bigDigitsPaint.setColor(clockWidget.getDigitColor());
-        paints.put("bigDigits", bigDigitsPaint);
-
-        Paint datePaint = new Paint();
-        datePaint.setTextSize(clockWidget.getDateSize());
-        datePaint.setTextAlign(Paint.Align.CENTER);
-        datePaint.setColor(clockWidget.getDigitColor());
-        paints.put("date", datePaint);
-
-
-        Paint textTitlePaint = new Paint();
-        textTitlePaint.setTextSize(clockWidget.getTitleSize());
-        textTitlePaint.setColor(clockWidget.getEventTitleColor());
-        paints.put("title", textTitlePaint);
+    void setHandStepMinutes(int handStepMinutes) {
+        this.handStepMinutes = Math.max(1, handStepMinutes);
+    }
 
-        for (Paint p : paints.values()) {
-            p.setAntiAlias(true);
+    void drawAll(Canvas canvas, RemoteViews remoteViews){
+        Tracing.begin(Tracing.drawAll);
+        try {
+            drawAllTraced(canvas, remoteViews);
+        } finally {
+            Tracing.end();
         }
-        return paints;
-
     }
 
-    void drawAll(Canvas canvas, RemoteViews remoteViews){
+    private void drawAllTraced(Canvas canvas, RemoteViews remoteViews) {
         canvas.drawColor(backgroundColor);
-        drawClock(canvas);
+        drawDial(canvas);
         if (calendarAdapter != null) {
-            drawEvents(canvas, remoteViews);
-            if (!calendarAdapter.isCalendarShifted()) {
-                drawHand(canvas);
-                drawTimeToNextEvent(remoteViews);
+            now.setTimeInMillis(System.currentTimeMillis());
+            Tracing.begin(Tracing.drawEvents);
+            try {
+                drawEvents(canvas);
+            } finally {
+                Tracing.end();
             }
-            else{
-                remoteViews.setTextViewText(R.id.time_to_next_event_textView, "");
+            if (!calendarAdapter.isCalendarShifted()) {
+                Tracing.begin(Tracing.drawHand);
+                try {
+                    drawHand(canvas);
+                } finally {
+                    Tracing.end();
+                }
             }
+            setTexts(remoteViews);
         }
 
-        drawMarkersAndDigits(canvas);
         postInvalidateDelayed(refreshTimeoutMillis);
     }
 
-    void setCalendarAdapter()
-    {
-        calendarAdapter = CalendarAdapter.getInstance();
-        invalidate();
-    }
-
-    private void drawClock(Canvas canvas)
-    {
-        RectF ringRect = clockWidget.getWidgetCircleObject();
-
-        // draw base ring
-        canvas.drawArc(ringRect, -90, 360, false, paints.get("ring"));
-
-//         draw clock border
-        //subtracted 75 from radius than added 100 to stroke , overall +25 to border
-        canvas.drawCircle(clockWidget.getCenter().x,
-                clockWidget.getCenter().y,
-                clockWidget.getRadius() + clockWidget.getPaddingDigits(),
-                paints.get("border"));
-    }
-
-    private void drawMarkersAndDigits(Canvas canvas)
-    {
-        // draw markers
-        List<List<Point>> markers = clockWidget.getHourMarkersCoordinates();
-        for (List<Point> marker : markers) {
-            canvas.drawLine(marker.get(0).x, marker.get(0).y,
-                    marker.get(1).x, marker.get(1).y,
-                    paints.get("border"));
-        }
-
-        // draw digits
-        List<Point> digits = clockWidget.getDigitsCoordinates();
-        for (int i = 0; i < digits.size(); i++) {
-            Paint paint;
-            if (i % 3 == 0)
-            {
-                paint = paints.get("bigDigits");
-                Point coords = digits.get(i);
-                canvas.drawText(Integer.toString(i), coords.x, coords.y, paint);
-            }
-        }
-    }
-
-    private void drawHand(Canvas canvas) {
-        List<Point> hand = clockWidget.getCurrentTimeHandCoordinates();
-        canvas.drawLine(hand.get(0).x, hand.get(0).y, hand.get(1).x, hand.get(1).y, paints.get("hand"));
-    }
-
-    private void drawTimeToNextEvent(RemoteViews views) {
-        long timeToNextEvent = calendarAdapter.getTimeToNextEvent();
-        if (timeToNextEvent != 0){
-            long timeInMinutes = (timeToNextEvent - System.currentTimeMillis())/60_000;
-            String text = "Time to next event: " + String.valueOf(timeInMinutes) + " minutes";
-            views.setTextViewText(R.id.time_to_next_event_textView, text);
-        }
-        else {
-            views.setTextViewText(R.id.time_to_next_event_textView, "");
+    // Only the texts, for updates where the clock picture stays the same
+    void drawTexts(RemoteViews remoteViews) {
+        if (calendarAdapter != null) {
+            now.setTimeInMillis(System.currentTimeMillis());
+            setTexts(remoteViews);
         }
     }
 
-
-    private void drawEvents(Canvas canvas, RemoteViews remoteViews) {
-        RectF widgetCircle = clockWidget.getWidgetCircleObject();
-
-        List<Event> todayEvents = calendarAdapter.getTodayEvents();
-
-        // draw overlapping events
-        List<List<Event>> sameTimeEventsList = extractSameTimeEvents(todayEvents);
-        for (List<Event> sameTimeEvents : sameTimeEventsList) {
-            drawSameTimeEvents(canvas, widgetCircle, sameTimeEvents);
-        }
-
-        List<Event> allDayEvents = new ArrayList<>();
-        for (Event event : todayEvents) {
-            if (event.isAllDay()) {
-                allDayEvents.add(event);
-                continue;
+    private void setTexts(RemoteViews remoteViews) {
+        remoteViews.setTextViewText(R.id.all_day_event_textView,
+                clockScene.getAllDayText(calendarAdapter.getTodayEventBuffer()));
+        if (!calendarAdapter.isCalendarShifted()) {
+            Tracing.begin(Tracing.drawTimeToNextEvent);
+            try {
+                drawTimeToNextEvent(remoteViews);
+            } finally {
+                Tracing.end();
             }
-            drawEvent(canvas, widgetCircle, event);
         }
-
-        if (allDayEvents.isEmpty()) {
-            remoteViews.setTextViewText(R.id.all_day_event_textView, "");
-            return;
+        else{
+            remoteViews.setTextViewText(R.id.time_to_next_event_textView, "");
         }
-
-        HashSet<String> allDayTitles = new HashSet<>();
-        for(Event event : allDayEvents){
-            allDayTitles.add(event.getTitle());
-        }
-
-        // build the string that represent the all day events and show it as text under the clock
-        StringBuilder builder = new StringBuilder();
-
-        builder.append("All-day: ");
-        for (String title : allDayTitles) {
-            builder.append(title.trim());
-            builder.append(", ");
-        }
-        builder.setLength(builder.length() - 2); // cut out last comma
-        remoteViews.setTextViewText(R.id.all_day_event_textView, cutAllDayEventsTitlesIfNeeded(builder.toString()));
-    }
-
-    private String cutEventTitleIfNeeded(String title) {
-        return normalizeEventTitle(title, clockWidget.getPaddingRadius()*2);
     }
 
-    private String cutAllDayEventsTitlesIfNeeded(String titles) {
-        return normalizeEventTitle(titles, clockWidget.getWidgetWidth());
-    }
-
-    private String normalizeEventTitle(String title, float maxWidth) {
-        float textWidth = paints.get("title").measureText(title);
-        if (textWidth > maxWidth) {
-            float maxSymbols = (maxWidth * title.length()) / textWidth;
-            maxSymbols -= 3; // "..." + one padding char
-            title = title.substring(0, Math.round(maxSymbols));
-            title += "..";
-        }
-        return title;
+    void setCalendarAdapter()
+    {
+        calendarAdapter = CalendarAdapter.getInstance();
+        invalidate();
     }
 
-
-    private void drawEvent(Canvas canvas, RectF widgetCircle, Event event) {
-        Calendar calendar = Calendar.getInstance();
-
-        if (event.isEnd(calendar.getTimeInMillis()) && !calendarAdapter.isCalendarShifted())
-        {
-            drawEventGeneralized(canvas, widgetCircle, clockWidget.getEventDegrees(event), Color.GRAY,
-                    event.isFinishedInFirstDayHalf(), event.getTitle());
-            return;
+    // Dial is rendered once per widget size and then reused by every redraw, events and hand are drawn over it
+    private void drawDial(Canvas canvas) {
+        Tracing.begin(Tracing.drawDial);
+        try {
+            drawDialTraced(canvas);
+        } finally {
+            Tracing.end();
         }
-
-        drawEventGeneralized(canvas, widgetCircle, clockWidget.getEventDegrees(event), event.getColor(),
-                event.isFinishedInFirstDayHalf(), event.getTitle());
     }
 
-    private void drawSameTimeEvents(Canvas canvas, RectF widgetCircle, List<Event> events) {
-        StringBuilder titleBuilder = new StringBuilder();
-        titleBuilder.append(events.size());
-        titleBuilder.append(": ");
-        for (Event event : events) {
-            titleBuilder.append(event.getTitle());
-            titleBuilder.append(", ");
+    private void drawDialTraced(Canvas canvas) {
+        if (dialLayer == null) {
+            ClockPoint size = clockGeometry.getScreenSize();
+            Tracing.begin(Tracing.allocateBitmap);
+            try {
+                dialLayer = Bitmap.createBitmap(size.x, size.y, Bitmap.Config.ARGB_8888);
+            } finally {
+                Tracing.end();
+            }
+            canvasSink.setCanvas(new Canvas(dialLayer));
+            clockScene.emitDial(canvasSink);
         }
-        titleBuilder.setLength(titleBuilder.length() - 2); // cut out last comma
-
-        Event event = events.get(0);
-        drawEventGeneralized(canvas, widgetCircle, clockWidget.getEventDegrees(event), event.getColor(),
-                event.isFinishedInFirstDayHalf(), titleBuilder.toString());
+        canvas.drawBitmap(dialLayer, 0, 0, dialPaint);
     }
 
-
-    private void drawEventGeneralized(Canvas canvas, RectF widgetCircle, ClockWidget.EventDegreeData degrees, int color,
-                                      boolean isFinishedFirstDayHalf, String title) {
-        Paint eventPaint = paints.get("ring");
-        if (useCalendarColors) {
-            eventPaint.setColor(color);
-        }
-        else
-        {
-            eventPaint.setColor(Color.parseColor("#FF81C4FD"));
-        }
-        eventPaint.setAlpha(80);
-        final float minSweep = (float) 0.5;
-        float sweepAngle = Math.max(degrees.getSweep(), minSweep);
-        float startAngle = degrees.getStart();
-        canvas.drawArc(widgetCircle, startAngle, sweepAngle, false, eventPaint);
-
-        eventPaint.setColor(ColorUtils.blendARGB(eventPaint.getColor(), Color.BLACK, 0.1f));
-        canvas.drawArc(clockWidget.getWidgetCircleObject(), startAngle, sweepAngle, false, eventPaint);
-        canvas.save();
-
-        final String titleNormalized = cutEventTitleIfNeeded(title);
-        /*
-            α = arcsin(l / (2 * R)) * 360 / π
-            where l - horde length (text height)
-        */
-        double titleTextAngle = Math.toDegrees(Math.asin(Math.toRadians(calculateTextHeight(titleNormalized) /
-                (2 * clockWidget.getRadius())))) * (double) 360 / Math.PI;
-        titleTextAngle /= 2; // half of text angle is needed to center it
-        float titleAngle = degrees.getStart() + degrees.getSweep() / 2 + 90;
-        final float rotateAngle;
-        final int padding;
-        if (isFinishedFirstDayHalf)
-        {
-            titleAngle += (float) titleTextAngle; // move forward on half of text angle
-            rotateAngle = titleAngle - 90;
-            padding = calculateTextWidth(titleNormalized); // title text: center->radius // need to change according to stroke width
-        } else {
-            titleAngle -= (float) titleTextAngle; // move backward on half of text angle
-            rotateAngle = titleAngle - 270;
-            padding = 0; // title text: radius->center
+    private void drawHand(Canvas canvas) {
+        int minuteOfDay = Event.minuteOfDay(now);
+        if (Logging.DEBUG) {
+            Logging.d("Time for hand drawing: %d:%d", minuteOfDay / 60, minuteOfDay % 60);
         }
-
-        Point eventTitlePoint = clockWidget.calculateEventTitlePoint(titleAngle, padding);
-        canvas.rotate(rotateAngle, eventTitlePoint.x, eventTitlePoint.y);
-        canvas.drawText(titleNormalized, eventTitlePoint.x, eventTitlePoint.y, paints.get("title"));
-        canvas.restore();
-    }
-
-    private int calculateTextWidth(String text) {
-        Rect bounds = new Rect();
-        paints.get("title").getTextBounds(text, 0, text.length(), bounds);
-        return bounds.width();
+        canvasSink.setCanvas(canvas);
+        clockScene.emitHand(canvasSink, minuteOfDay);
     }
 
-    private int calculateTextHeight(String text) {
-        Rect bounds = new Rect();
-        paints.get("title").getTextBounds(text, 0, text.length(), bounds);
-        return bounds.height();
+    // Fills the parts of the state which depend on events and time
+    void fillRenderState(WidgetRenderState state) {
+        now.setTimeInMillis(System.currentTimeMillis());
+        EventBuffer todayEvents = calendarAdapter.getTodayEventBuffer();
+        int currentMinute = Event.minuteOfDay(now);
+        boolean shifted = calendarAdapter.isCalendarShifted();
+        state.dayStart = calendarAdapter.getDayStart();
+        state.eventsVersion = todayEvents.getVersion();
+        state.eventsFingerprint = clockScene.getEventsFingerprint(todayEvents, currentMinute, shifted);
+        state.handMinute = shifted ? -1 : currentMinute - currentMinute % handStepMinutes;
+        state.countdownMinutes = shifted ? -1 : getMinutesToNextEvent();
     }
 
-    private List<List<Event>> extractSameTimeEvents(List<Event> events) {
-        List<List<Event>> result = findSameTimeEvents(events);
-        for (List<Event> sameTimeEvents : result) {
-            removeEventsFromList(events, sameTimeEvents);
-        }
-        return result;
+    // -1 if there is no next event
+    private long getMinutesToNextEvent() {
+        long timeToNextEvent = calendarAdapter.getTimeToNextEvent();
+        return (timeToNextEvent != 0) ? (timeToNextEvent - now.getTimeInMillis()) / 60_000 : -1;
     }
 
-    private List<List<Event>> findSameTimeEvents(List<Event> events) {
-        List<List<Event>> result = new ArrayList<>();
-        List<Integer> foundIndexes = new ArrayList<>();
-        for (int outerIndex = 0; outerIndex < events.size(); outerIndex++) {
-            Event event = events.get(outerIndex);
-            if (event.isAllDay()) {
-                continue;
-            }
-            String startTime = event.getStartTime();
-            String finishTime = event.getFinishTime();
-            List<Event> sameTimeEvents = new ArrayList<>();
-            sameTimeEvents.add(event);
-            for (int innerIndex = 0; innerIndex < events.size(); innerIndex++) {
-                if ((innerIndex == outerIndex) || foundIndexes.contains(innerIndex)) {
-                    continue;
-                }
-                Event anotherEvent = events.get(innerIndex);
-                if (anotherEvent.getStartTime().equals(startTime) && anotherEvent.getFinishTime().equals(finishTime)) {
-                    sameTimeEvents.add(anotherEvent);
-                    foundIndexes.add(innerIndex);
-                }
-            }
-            if (sameTimeEvents.size() > 1) {
-                result.add(sameTimeEvents);
-                foundIndexes.add(outerIndex);
+    private void drawTimeToNextEvent(RemoteViews views) {
+        long timeInMinutes = getMinutesToNextEvent();
+        if (timeInMinutes != -1){
+            if (timeInMinutes != memoMinutesToNextEvent) {
+                memoMinutesToNextEvent = timeInMinutes;
+                nextEventText = "Time to next event: " + String.valueOf(timeInMinutes) + " minutes";
             }
+            views.setTextViewText(R.id.time_to_next_event_textView, nextEventText);
+        }
+        else {
+            views.setTextViewText(R.id.time_to_next_event_textView, "");
         }
-        return result;
     }
 
-    private void removeEventsFromList(List<Event> eventsList, List<Event> eventsToRemove) {
-        for (Iterator<Event> iter = eventsList.listIterator(); iter.hasNext(); ) {
-            if (eventsToRemove.contains(iter.next())) {
-                iter.remove();
+
+    private void drawEvents(Canvas canvas) {
+        EventBuffer todayEvents = calendarAdapter.getTodayEventBuffer();
+        int currentMinute = Event.minuteOfDay(now);
+        boolean shifted = calendarAdapter.isCalendarShifted();
+        long fingerprint = clockScene.getEventsFingerprint(todayEvents, currentMinute, shifted);
+        if (todayEvents != eventLayerEvents || fingerprint != eventLayerFingerprint) {
+            Tracing.begin(Tracing.recordEvents);
+            try {
+                ClockPoint size = clockGeometry.getScreenSize();
+                canvasSink.setCanvas(eventLayer.beginRecording(size.x, size.y));
+                clockScene.emitEvents(canvasSink, todayEvents, currentMinute, shifted);
+                eventLayer.endRecording();
+            } finally {
+                Tracing.end();
             }
+            eventLayerEvents = todayEvents;
+            eventLayerFingerprint = fingerprint;
         }
+        canvas.drawPicture(eventLayer);
+        UpdateMetrics.addEvents(todayEvents.getSize());
     }
-
-
-
-
 }
@@ -1,5 +1,73 @@
 package com.opensource.roundcalendar;
 
+import android.util.Log;
+
+import java.util.Locale;
+
 class Logging {
     static final String TAG = "RoundCalendar";
+
+    // Compile-time constant, false in release builds. Hot paths wrap logging with "if (Logging.DEBUG)", so the
+    // compiler drops the whole call together with its arguments.
+    static final boolean DEBUG = BuildConfig.VERBOSE_LOGGING;
+
+    private static final int traceBufferSize = 256;
+
+    // Ring buffer of recent trace messages. Messages are kept unformatted and formatted only when dumped.
+    private static final long[] traceTimes = new long[traceBufferSize];
+    private static final String[] traceFormats = new String[traceBufferSize];
+    private static final Object[][] traceArgs = new Object[traceBufferSize][];
+    private static int traceNext = 0;
+    private static int traceCount = 0;
+    private static final boolean traceEnabled = DEBUG;
+
+
+    // Debug message, formatted with String.format() rules only if debug logging is enabled
+    static void d(String format, Object... args) {
+        if (!DEBUG) {
+            return;
+        }
+        Log.d(TAG, format(format, args));
+        trace(format, args);
+    }
+
+    // Warning, logged in release builds as well
+    static void w(String format, Object... args) {
+        Log.w(TAG, format(format, args));
+        trace(format, args);
+    }
+
+    // Only records the message into the trace ring buffer
+    static void trace(String format, Object... args) {
+        if (!traceEnabled) {
+            return;
+        }
+        synchronized (traceTimes) {
+            traceTimes[traceNext] = System.currentTimeMillis();
+            traceFormats[traceNext] = format;
+            traceArgs[traceNext] = args;
+            traceNext = (traceNext + 1) % traceBufferSize;
+            traceCount = Math.min(traceCount + 1, traceBufferSize);
+        }
+    }
+
+    // Writes the buffered trace messages to logcat, oldest first, and clears the buffer
+    static void dumpTrace() {
+        synchronized (traceTimes) {
+            Log.i(TAG, "Trace dump, " + traceCount + " messages:");
+            int first = (traceNext - traceCount + traceBufferSize) % traceBufferSize;
+            for (int i = 0; i < traceCount; i++) {
+                int index = (first + i) % traceBufferSize;
+                Log.i(TAG, String.format(Locale.US, "%tT.%<tL %s", traceTimes[index],
+                        format(traceFormats[index], traceArgs[index])));
+                traceFormats[index] = null;
+                traceArgs[index] = null;
+            }
+            traceCount = 0;
+        }
+    }
+
+    private static String format(String format, Object[] args) {
+        return (args == null || args.length == 0) ? format : String.format(Locale.US, format, args);
+    }
 }
@@ -0,0 +1,71 @@
+package com.opensource.roundcalendar;
+
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.util.LruCache;
+
+// Ellipsized texts and their bounds, keyed by (text, max width, text size). Recurring meetings repeat the same title,
+// so it's measured once no matter how many events and redraws show it.
+class TextLayoutCache {
+
+    private static final String ellipsis = "..";
+    private static final int maxEntries = 256;
+
+    private static final LruCache<Key, MeasuredText> layouts = new LruCache<>(maxEntries);
+    // lookups go through this mutable key, so cache hits don't allocate
+    private static final Key probe = new Key();
+    private static final Rect bounds = new Rect();
+
+    static synchronized MeasuredText get(Paint paint, String text, float maxWidth) {
+        probe.set(text, maxWidth, paint.getTextSize());
+        MeasuredText layout = layouts.get(probe);
+        if (layout == null) {
+            layout = measure(paint, text, maxWidth);
+            Key key = new Key();
+            key.set(text, maxWidth, paint.getTextSize());
+            layouts.put(key, layout);
+        }
+        return layout;
+    }
+
+    private static MeasuredText measure(Paint paint, String text, float maxWidth) {
+        String fitted = text;
+        if (paint.measureText(text) > maxWidth) {
+            // breakText measures glyph by glyph, so the cut is exact instead of a proportional guess
+            float availableWidth = Math.max(maxWidth - paint.measureText(ellipsis), 0);
+            int fittedLength = paint.breakText(text, true, availableWidth, null);
+            fitted = text.substring(0, fittedLength) + ellipsis;
+        }
+        paint.getTextBounds(fitted, 0, fitted.length(), bounds);
+        return new MeasuredText(fitted, bounds.width(), bounds.height());
+    }
+
+    private static class Key {
+        private String text;
+        private float maxWidth;
+        private float textSize;
+
+        void set(String text, float maxWidth, float textSize) {
+            this.text = text;
+            this.maxWidth = maxWidth;
+            this.textSize = textSize;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return maxWidth == key.maxWidth && textSize == key.textSize && text.equals(key.text);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = text.hashCode();
+            hash = 31 * hash + Float.floatToIntBits(maxWidth);
+            hash = 31 * hash + Float.floatToIntBits(textSize);
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.opensource.roundcalendar;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.text.format.DateUtils;
+
+import java.util.Calendar;
+
+
+/*
+    Schedules the next widget tick at the next moment something visible changes, instead of a fixed period:
+    - an event starts or ends (its arc is grayed out), and midnight - exact alarms, as the clock is wrong otherwise;
+    - the hand moves to the next step of the configured update period, and the countdown text changes - windowed
+      alarms, as a little drift is not noticeable and lets the system batch wake-ups.
+    The countdown is shown per step like the hand, and per minute only shortly before the next event starts.
+    Update period is persisted, so ticks survive process death.
+ */
+final class TickScheduler {
+
+    static final String updatePeriodSettingName = "updatePeriodMinutes";
+    static final int defaultUpdatePeriodMinutes = 0; // auto-update is disabled until configured
+
+    private static final long minuteMillis = DateUtils.MINUTE_IN_MILLIS;
+    // countdown is updated every minute only when the next event is that close
+    private static final long minutelyCountdownMillis = 10 * minuteMillis;
+    // windowed alarm may be delivered up to this part of the time left later
+    private static final float windowRatio = 0.25f;
+
+    private TickScheduler() {
+    }
+
+    static void setUpdatePeriodMinutes(Context context, int minutes) {
+        getPreferences(context).edit().putInt(updatePeriodSettingName, minutes).apply();
+    }
+
+    static int getUpdatePeriodMinutes(Context context) {
+        return getPreferences(context).getInt(updatePeriodSettingName, defaultUpdatePeriodMinutes);
+    }
+
+    // Called after widgets are rendered, so today's events are usually cached already
+    static void scheduleNextTick(Context context) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        int updatePeriod = getUpdatePeriodMinutes(context);
+        if (updatePeriod <= 0) {
+            if (Logging.DEBUG) {
+                Logging.d("Widget auto-update is disabled");
+            }
+            cancel(context);
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(now);
+        int minuteOfDay = Event.minuteOfDay(calendar);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        long dayStart = calendar.getTimeInMillis();
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        long midnight = calendar.getTimeInMillis();
+
+        long exactTime = midnight;
+        long handStep = dayStart + (long) (minuteOfDay / updatePeriod + 1) * updatePeriod * minuteMillis;
+        long windowedTime = handStep;
+        DayEvents today = getDayEvents(context, dayStart);
+        if (today != null) {
+            exactTime = earliest(midnight, today.findNextChange(now));
+            long nextEventStart = today.findNextStartTime(now);
+            if (nextEventStart != 0 && nextEventStart - now <= minutelyCountdownMillis) {
+                windowedTime = Math.min(windowedTime, now - now % minuteMillis + minuteMillis);
+            }
+        }
+
+        PendingIntent tickIntent;
+        if (exactTime <= windowedTime) {
+            tickIntent = createTickIntent(context, exactTime);
+            alarmManager.setExact(AlarmManager.RTC, exactTime, tickIntent);
+            if (Logging.DEBUG) {
+                Logging.d("Next tick in %d s, exact", (exactTime - now) / 1000);
+            }
+        } else {
+            long windowLength = Math.min((long) ((windowedTime - now) * windowRatio), exactTime - windowedTime);
+            tickIntent = createTickIntent(context, windowedTime);
+            alarmManager.setWindow(AlarmManager.RTC, windowedTime, windowLength, tickIntent);
+            if (Logging.DEBUG) {
+                Logging.d("Next tick in %d s, window %d s", (windowedTime - now) / 1000, windowLength / 1000);
+            }
+        }
+    }
+
+    // Today's events, taken under the same lock as for drawing. Null if the calendar can't be read, then ticks
+    // follow only the hand and midnight.
+    private static DayEvents getDayEvents(Context context, long dayStart) {
+        try {
+            return WidgetConfigurationActivity.getDayEvents(context, dayStart);
+        } catch (SecurityException e) {
+            Logging.w("Calendar is not readable, next tick ignores events: %s", e.getMessage());
+            return null;
+        }
+    }
+
+    // No ticks are needed when the last widget is removed
+    static void cancel(Context context) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        alarmManager.cancel(createTickIntent(context, 0));
+    }
+
+    private static PendingIntent createTickIntent(Context context, long tickTime) {
+        Intent intent = new Intent(context, WidgetProvider.class);
+        intent.setAction(WidgetProvider.tickAction);
+        intent.putExtra(WidgetProvider.tickTimeExtra, tickTime);
+        return PendingIntent.getBroadcast(context, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT);
+    }
+
+    // Earliest of the given times, 0 means no time
+    private static long earliest(long time, long otherTime) {
+        return (otherTime == 0) ? time : Math.min(time, otherTime);
+    }
+
+    private static SharedPreferences getPreferences(Context context) {
+        return context.getSharedPreferences(WidgetConfigurationActivity.preferencesName, Context.MODE_PRIVATE);
+    }
+}
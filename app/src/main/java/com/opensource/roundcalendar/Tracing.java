@@ -0,0 +1,65 @@
+package com.opensource.roundcalendar;
+
+import android.os.Build;
+import android.os.Trace;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+    android.os.Trace sections of the widget update pipeline, visible in Perfetto/systrace captures. Every section is
+    named "RoundCalendar:<stage>". These names are compared between releases, so an existing name should not be
+    changed; add a new one instead. Async sections cover background work and need API 29, they are skipped on older
+    devices.
+ */
+final class Tracing {
+
+    private static final String prefix = Logging.TAG + ":";
+
+    static final String onReceive = prefix + "onReceive";
+    static final String onUpdate = prefix + "onUpdate";
+    static final String render = prefix + "render";
+    static final String drawWidget = prefix + "drawWidget";
+    static final String drawAll = prefix + "drawAll";
+    static final String drawDial = prefix + "drawDial";
+    static final String drawEvents = prefix + "drawEvents";
+    static final String recordEvents = prefix + "recordEvents";
+    static final String drawHand = prefix + "drawHand";
+    static final String drawTimeToNextEvent = prefix + "drawTimeToNextEvent";
+    static final String allocateBitmap = prefix + "allocateBitmap";
+    static final String updateAppWidget = prefix + "updateAppWidget";
+    static final String partiallyUpdateAppWidget = prefix + "partiallyUpdateAppWidget";
+    static final String loadDayEvents = prefix + "loadDayEvents";
+    static final String queryInstances = prefix + "queryInstances";
+    static final String readEvents = prefix + "readEvents";
+    static final String prefetchDays = prefix + "prefetchDays";
+    static final String loadCalendars = prefix + "loadCalendars";
+
+    private static final AtomicInteger nextCookie = new AtomicInteger();
+
+    private Tracing() {
+    }
+
+    // Sections are nested and have to be ended on the same thread, so callers wrap them with try/finally
+    static void begin(String section) {
+        Trace.beginSection(section);
+    }
+
+    static void end() {
+        Trace.endSection();
+    }
+
+    // Returns cookie of the started section, which has to be passed to endAsync()
+    static int beginAsync(String section) {
+        int cookie = nextCookie.incrementAndGet();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(section, cookie);
+        }
+        return cookie;
+    }
+
+    static void endAsync(String section, int cookie) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(section, cookie);
+        }
+    }
+}
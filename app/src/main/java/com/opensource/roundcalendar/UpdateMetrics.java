@@ -0,0 +1,165 @@
+package com.opensource.roundcalendar;
+
+import android.os.Debug;
+import android.os.SystemClock;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+    Timings of the recent widget updates, read by the debug MetricsProvider. Samples are written into a lock-free
+    ring buffer: a writer claims a row with one atomic increment, so recording never blocks rendering. A reader racing
+    with a writer may see one partially written row, which is fine for statistics. Recording is compiled out of
+    release builds.
+    Day events are usually taken from the cache: cache_misses counts the days which had to be queried during the
+    update, and query_us and query_rows cover only those queries. events is the number of events drawn.
+    Updates of the texts only have no picture: their events, raster_us and bitmap_bytes are 0. Updates not triggered
+    by a tick have skew_ms of noSkew.
+ */
+final class UpdateMetrics {
+
+    static final boolean enabled = BuildConfig.DEBUG;
+
+    static final String[] columns = {"widget_id", "time", "cache_misses", "query_us", "query_rows", "events",
+            "raster_us", "bitmap_bytes", "update_us", "cpu_us", "skew_ms"};
+    static final int widgetIdColumn = 0;
+    static final int timeColumn = 1;
+    static final int cacheMissesColumn = 2;
+    static final int queryColumn = 3;
+    static final int queryRowsColumn = 4;
+    static final int eventsColumn = 5;
+    static final int rasterColumn = 6;
+    static final int bitmapBytesColumn = 7;
+    static final int updateColumn = 8;
+    static final int cpuColumn = 9;
+    static final int skewColumn = 10;
+    static final int firstValueColumn = queryColumn;
+    static final long noSkew = -1;
+
+    private static final int capacity = 512;
+    private static final AtomicLongArray samples = new AtomicLongArray(capacity * columns.length);
+    private static final AtomicLong written = new AtomicLong();
+
+    // sample of the update running on the current thread, calendar queries add to it
+    private static final ThreadLocal<Sample> currentSample = new ThreadLocal<Sample>() {
+        @Override
+        protected Sample initialValue() {
+            return new Sample();
+        }
+    };
+
+    private UpdateMetrics() {
+    }
+
+    // Starts a sample on the current thread. Tick time is when the alarm was scheduled to fire, or 0 if the update
+    // was not triggered by a tick.
+    static Sample begin(int widgetId, long tickTimeMillis) {
+        Sample sample = currentSample.get();
+        if (enabled) {
+            sample.begin(widgetId, tickTimeMillis);
+        }
+        return sample;
+    }
+
+    static void addQuery(long queryNanos, int rows) {
+        if (!enabled) {
+            return;
+        }
+        Sample sample = currentSample.get();
+        if (sample.active) {
+            sample.cacheMisses++;
+            sample.queryNanos += queryNanos;
+            sample.queryRows += rows;
+        }
+    }
+
+    static void addEvents(int events) {
+        if (!enabled) {
+            return;
+        }
+        Sample sample = currentSample.get();
+        if (sample.active) {
+            sample.events += events;
+        }
+    }
+
+    // Number of rows in the buffer, rows are indexed oldest first
+    static int getSize() {
+        return (int) Math.min(written.get(), capacity);
+    }
+
+    static long get(int row, int column) {
+        long first = Math.max(written.get() - capacity, 0);
+        int slot = (int) ((first + row) % capacity);
+        return samples.get(slot * columns.length + column);
+    }
+
+    private static void record(Sample sample) {
+        int slot = (int) (written.getAndIncrement() % capacity);
+        int offset = slot * columns.length;
+        samples.set(offset + widgetIdColumn, sample.widgetId);
+        samples.set(offset + timeColumn, sample.timeMillis);
+        samples.set(offset + cacheMissesColumn, sample.cacheMisses);
+        samples.set(offset + queryColumn, sample.queryNanos / 1000);
+        samples.set(offset + queryRowsColumn, sample.queryRows);
+        samples.set(offset + eventsColumn, sample.events);
+        samples.set(offset + rasterColumn, sample.rasterNanos / 1000);
+        samples.set(offset + bitmapBytesColumn, sample.bitmapBytes);
+        samples.set(offset + updateColumn, sample.updateNanos / 1000);
+        samples.set(offset + cpuColumn, sample.cpuNanos / 1000);
+        samples.set(offset + skewColumn, sample.skewMillis);
+    }
+
+    // Stages of one widget update, reused by the thread for every update
+    static final class Sample {
+        private boolean active;
+        private int widgetId;
+        private long timeMillis;
+        private long skewMillis;
+        private long startNanos;
+        private long startCpuNanos;
+        private long drawnNanos;
+        private int cacheMisses;
+        private long queryNanos;
+        private int queryRows;
+        private int events;
+        private long rasterNanos;
+        private int bitmapBytes;
+        private long updateNanos;
+        private long cpuNanos;
+
+        private void begin(int widgetId, long tickTimeMillis) {
+            active = true;
+            this.widgetId = widgetId;
+            timeMillis = System.currentTimeMillis();
+            skewMillis = (tickTimeMillis != 0) ? timeMillis - tickTimeMillis : noSkew;
+            startNanos = SystemClock.elapsedRealtimeNanos();
+            startCpuNanos = Debug.threadCpuTimeNanos();
+            cacheMisses = 0;
+            queryNanos = 0;
+            queryRows = 0;
+            events = 0;
+        }
+
+        // Widget is drawn: everything since begin, except calendar queries, is rasterization
+        void drawn(int bitmapBytes) {
+            if (!active) {
+                return;
+            }
+            drawnNanos = SystemClock.elapsedRealtimeNanos();
+            rasterNanos = drawnNanos - startNanos - queryNanos;
+            this.bitmapBytes = bitmapBytes;
+        }
+
+        // Widget is updated, the sample goes to the ring buffer
+        void updated() {
+            if (!active) {
+                return;
+            }
+            updateNanos = SystemClock.elapsedRealtimeNanos() - drawnNanos;
+            cpuNanos = Debug.threadCpuTimeNanos() - startCpuNanos;
+            active = false;
+            record(this);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.opensource.roundcalendar;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.Point;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+    Reuses widget bitmaps between updates and keeps each RemoteViews bitmap payload under a byte budget, so the update
+    doesn't fail with TransactionTooLargeException. A bitmap is released as soon as the views holding it are sent, as
+    they are parceled by then.
+    Settings come from resources: the budget is R.integer.widget_payload_budget_kb, and R.bool.widget_low_memory_bitmaps
+    turns on the low-memory mode, which halves the bitmap before the budget is applied: RGB_565 when the widget
+    background is opaque, as no transparency is lost then, and half resolution otherwise.
+ */
+class WidgetBitmapPool {
+
+    private static final int maxFreeBitmapsPerSize = 2;
+    private static final int minBitmapSide = 16;
+
+    private static boolean settingsLoaded = false;
+    private static long payloadBudgetBytes;
+    private static boolean lowMemory;
+
+    private static final Map<Spec, ArrayDeque<Bitmap>> freeBitmaps = new HashMap<>();
+    private static final Spec probe = new Spec();
+
+    // Picks the largest bitmap fitting the budget: the widget size, or the widget size scaled down just enough.
+    // The returned bitmap is cleared and has to be drawn scaled by getScale().
+    static synchronized Bitmap acquire(Context context, Point widgetSize, boolean opaqueBackground) {
+        loadSettings(context);
+        Spec spec = chooseSpec(widgetSize, opaqueBackground);
+        ArrayDeque<Bitmap> free = freeBitmaps.get(spec);
+        Bitmap bitmap = (free != null) ? free.poll() : null;
+        if (bitmap == null) {
+            Tracing.begin(Tracing.allocateBitmap);
+            try {
+                bitmap = Bitmap.createBitmap(spec.width, spec.height, spec.config);
+            } finally {
+                Tracing.end();
+            }
+        } else {
+            bitmap.eraseColor(Color.TRANSPARENT);
+        }
+
+        if (Logging.DEBUG) {
+            Logging.d("Widget bitmap %dx%d %s, payload: %d bytes", spec.width, spec.height, spec.config,
+                    bitmap.getByteCount());
+        }
+        return bitmap;
+    }
+
+    static synchronized void release(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        probe.set(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig());
+        ArrayDeque<Bitmap> free = freeBitmaps.get(probe);
+        if (free == null) {
+            free = new ArrayDeque<>();
+            freeBitmaps.put(new Spec(probe), free);
+        }
+        if (free.size() < maxFreeBitmapsPerSize) {
+            free.push(bitmap);
+        }
+    }
+
+    // Scale of the drawing relatively to the widget size
+    static float getScale(Bitmap bitmap, Point widgetSize) {
+        return (float) bitmap.getWidth() / widgetSize.x;
+    }
+
+    private static Spec chooseSpec(Point widgetSize, boolean opaqueBackground) {
+        int width = widgetSize.x;
+        int height = widgetSize.y;
+        // widget background may be transparent, so the bitmap keeps alpha unless it's drawn over an opaque one
+        Bitmap.Config config = Bitmap.Config.ARGB_8888;
+        if (lowMemory && opaqueBackground) {
+            config = Bitmap.Config.RGB_565;
+        } else if (lowMemory) {
+            width = Math.max(width / 2, minBitmapSide);
+            height = Math.max(height / 2, minBitmapSide);
+        }
+
+        long bytes = (long) width * height * getBytesPerPixel(config);
+        if (bytes > payloadBudgetBytes) {
+            double scale = Math.sqrt((double) payloadBudgetBytes / bytes);
+            width = (int) (width * scale);
+            height = (int) (height * scale);
+            if (width < minBitmapSide || height < minBitmapSide) {
+                Logging.w("Widget bitmap doesn't fit payload budget of %d bytes", payloadBudgetBytes);
+                width = Math.max(width, minBitmapSide);
+                height = Math.max(height, minBitmapSide);
+            }
+        }
+        probe.set(width, height, config);
+        return probe;
+    }
+
+    private static int getBytesPerPixel(Bitmap.Config config) {
+        return (config == Bitmap.Config.RGB_565) ? 2 : 4;
+    }
+
+    private static void loadSettings(Context context) {
+        if (settingsLoaded) {
+            return;
+        }
+        Resources resources = context.getResources();
+        payloadBudgetBytes = resources.getInteger(R.integer.widget_payload_budget_kb) * 1024L;
+        lowMemory = resources.getBoolean(R.bool.widget_low_memory_bitmaps);
+        settingsLoaded = true;
+    }
+
+    private static class Spec {
+        private int width;
+        private int height;
+        private Bitmap.Config config;
+
+        Spec() {
+        }
+
+        Spec(Spec other) {
+            set(other.width, other.height, other.config);
+        }
+
+        void set(int width, int height, Bitmap.Config config) {
+            this.width = width;
+            this.height = height;
+            this.config = config;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Spec)) {
+                return false;
+            }
+            Spec spec = (Spec) other;
+            return width == spec.width && height == spec.height && config == spec.config;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * width + height) + config.hashCode();
+        }
+    }
+}
@@ -20,6 +20,7 @@ import android.support.v7.app.AlertDialog;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
 import android.util.Log;
+import android.util.LruCache;
 import android.view.View;
 import android.widget.Button;
 import android.widget.CompoundButton;
@@ -47,11 +48,17 @@ public class WidgetConfigurationActivity extends AppCompatActivity {
 
     static final int CALENDAR_PERMISSION_CODE = 0;
 
-    private static final String preferencesName = "RoundCalendarPrefs";
+    static final String preferencesName = "RoundCalendarPrefs";
     private static final String eventColorSettingName = "useCalendarEventColor";
     private static final String calendarIdsSettingName = "calendarIds";
     private static final String widgetBackgroundTransparency = "widgetBackgroundTransparency";
 
+    private static final int maxClockViews = 3;
+    private static final LruCache<Point, ClockView> clockViews = new LruCache<>(maxClockViews);
+
+    private static List<String> selectedCalendarIds = null;
+    private static boolean selectedCalendarIdsLoaded = false;
+
     private SpinnerAdapter spinnerAdapter;
 
     private Switch autoUpdateSwitch;
@@ -77,25 +84,31 @@ public class WidgetConfigurationActivity extends AppCompatActivity {
         });
     }
 
-    public static void drawWidget(Context context, RemoteViews views, Point widgetSize, int dayShift) {
-        // holds the preferences of the widget - which calendars to show, which colors to use
+    // CalendarAdapter is a shared singleton, so widgets are drawn one at a time
+    public static synchronized Bitmap drawWidget(Context context, RemoteViews views, Point widgetSize, int dayShift) {
+        Tracing.begin(Tracing.drawWidget);
+        try {
+            return drawWidgetTraced(context, views, widgetSize, dayShift);
+        } finally {
+            Tracing.end();
+        }
+    }
+
+    private static Bitmap drawWidgetTraced(Context context, RemoteViews views, Point widgetSize, int dayShift) {
         Log.d("DRAW WIDGET", "in draw widget");
         SharedPreferences preferences = context.getSharedPreferences(preferencesName, Context.MODE_PRIVATE);
-        Set<String> selectedCalendars = preferences.getStringSet(calendarIdsSettingName, null);
         CalendarAdapter calendarAdapter = CalendarAdapter.getInstance();
-        ArrayList<String> selectedCalendarsAsArray  =(selectedCalendars != null) ? new ArrayList<>(selectedCalendars) : null;
-        calendarAdapter.setCalendarIds(selectedCalendarsAsArray);
-        calendarAdapter.setContext(context);
-        calendarAdapter.setDaysShift(dayShift);
-        boolean useCalendarEventColor = preferences.getBoolean(eventColorSettingName, Boolean.TRUE);
+        ClockView clockView = prepareClockView(context, preferences, widgetSize, dayShift);
 
         changeWidgetBackground(views, preferences);
 
-        // create clockView object with the relevant preferences - size of widget, color to use, etc
-        ClockView clockView = new ClockView(context, widgetSize, useCalendarEventColor);
-        clockView.setCalendarAdapter();
-        Bitmap bitmap = Bitmap.createBitmap(widgetSize.x, widgetSize.y, Bitmap.Config.ARGB_8888);
-        clockView.drawAll(new Canvas(bitmap), views);
+        // bitmap comes from the pool and may be smaller than the widget, to keep RemoteViews under payload budget
+        boolean opaqueBackground = preferences.getFloat(widgetBackgroundTransparency, 0) >= 1;
+        Bitmap bitmap = WidgetBitmapPool.acquire(context, widgetSize, opaqueBackground);
+        Canvas canvas = new Canvas(bitmap);
+        float scale = WidgetBitmapPool.getScale(bitmap, widgetSize);
+        canvas.scale(scale, scale);
+        clockView.drawAll(canvas, views);
 
 
         // date view
@@ -106,12 +119,81 @@ public class WidgetConfigurationActivity extends AppCompatActivity {
         views.setTextViewText(R.id.dateView, date);
         // end date view
         views.setImageViewBitmap(R.id.widgetClockView, bitmap);
+        return bitmap;
+    }
 
+    // Updates only the texts of the widget, the clock picture is left as it is
+    static synchronized void drawWidgetTexts(Context context, RemoteViews views, Point widgetSize, int dayShift) {
+        SharedPreferences preferences = context.getSharedPreferences(preferencesName, Context.MODE_PRIVATE);
+        prepareClockView(context, preferences, widgetSize, dayShift).drawTexts(views);
+    }
+
+    // Cheap compared to drawWidget(): events are usually cached, and nothing is drawn
+    static synchronized WidgetRenderState getRenderState(Context context, Point widgetSize, int dayShift) {
+        SharedPreferences preferences = context.getSharedPreferences(preferencesName, Context.MODE_PRIVATE);
+        ClockView clockView = prepareClockView(context, preferences, widgetSize, dayShift);
+        WidgetRenderState state = new WidgetRenderState();
+        state.width = widgetSize.x;
+        state.height = widgetSize.y;
+        state.daysShift = dayShift;
+        state.backgroundOpacity = preferences.getFloat(widgetBackgroundTransparency, 0);
+        state.useCalendarColors = preferences.getBoolean(eventColorSettingName, Boolean.TRUE);
+        clockView.fillRenderState(state);
+        return state;
+    }
+
+    // Events of the given day from the selected calendars. DayEvents is immutable, so it can be used after the lock
+    // guarding the shared CalendarAdapter is released.
+    static synchronized DayEvents getDayEvents(Context context, long dayStart) {
+        SharedPreferences preferences = context.getSharedPreferences(preferencesName, Context.MODE_PRIVATE);
+        CalendarAdapter calendarAdapter = CalendarAdapter.getInstance();
+        calendarAdapter.setCalendarIds(getSelectedCalendarIds(preferences));
+        calendarAdapter.setContext(context);
+        return calendarAdapter.getDayEvents(dayStart);
+    }
+
+    // Points shared CalendarAdapter to the widget settings and returns clock view for the widget size
+    private static ClockView prepareClockView(Context context, SharedPreferences preferences, Point widgetSize,
+                                              int dayShift) {
+        // holds the preferences of the widget - which calendars to show, which colors to use
+        CalendarAdapter calendarAdapter = CalendarAdapter.getInstance();
+        calendarAdapter.setCalendarIds(getSelectedCalendarIds(preferences));
+        calendarAdapter.setContext(context);
+        calendarAdapter.setDaysShift(dayShift);
+        boolean useCalendarEventColor = preferences.getBoolean(eventColorSettingName, Boolean.TRUE);
+
+        // clockView object is kept per widget size, so its paints, scratch objects and memoized titles are reused
+        ClockView clockView = clockViews.get(widgetSize);
+        if (clockView == null) {
+            clockView = new ClockView(context.getApplicationContext(), widgetSize, useCalendarEventColor);
+            clockView.setCalendarAdapter();
+            clockViews.put(new Point(widgetSize), clockView);
+        }
+        clockView.setUseCalendarColors(useCalendarEventColor);
+        clockView.setHandStepMinutes(TickScheduler.getUpdatePeriodMinutes(context));
+        return clockView;
+    }
+
+    // Selected calendars are read from preferences once per process and then kept until the user saves new ones
+    private static synchronized List<String> getSelectedCalendarIds(SharedPreferences preferences) {
+        if (!selectedCalendarIdsLoaded) {
+            Set<String> selectedCalendars = preferences.getStringSet(calendarIdsSettingName, null);
+            selectedCalendarIds = (selectedCalendars != null) ? new ArrayList<>(selectedCalendars) : null;
+            selectedCalendarIdsLoaded = true;
+        }
+        return selectedCalendarIds;
+    }
+
+    private static synchronized void setSelectedCalendarIds(List<String> ids) {
+        selectedCalendarIds = ids;
+        selectedCalendarIdsLoaded = true;
     }
 
     public static Point getWidgetSize(AppWidgetManager appWidgetManager, int appWidgetId) {
         AppWidgetProviderInfo widgetInfo = appWidgetManager.getAppWidgetInfo(appWidgetId);
-        Log.d(TAG, "Widget height: " + widgetInfo.minHeight + ", width: " + widgetInfo.minWidth);
+        if (Logging.DEBUG) {
+            Logging.d("Widget height: %d, width: %d", widgetInfo.minHeight, widgetInfo.minWidth);
+        }
         return new Point(widgetInfo.minWidth, widgetInfo.minHeight);
     }
 
@@ -126,6 +208,10 @@ public class WidgetConfigurationActivity extends AppCompatActivity {
         boolean useCalendarEventColor = calendarEventColorButton.isChecked();
         Log.d(TAG, "Using " + (useCalendarEventColor ? "calendar" : "default") + " event color");
 
+        if (spinnerAdapter == null) {
+            Log.e(TAG, "Calendars are not loaded yet");
+            return;
+        }
         Set<String> selectedIds = spinnerAdapter.getSelectedCalendarIds();
         if (selectedIds.isEmpty()) {
             Log.e(TAG, "No selected calendars");
@@ -159,8 +245,7 @@ public class WidgetConfigurationActivity extends AppCompatActivity {
         SeekBar selectWidgetBackground = findViewById(R.id.select_widget_background);
         float opacity = (float)(selectWidgetBackground.getProgress())/10;
 
-        WidgetProvider.setOnClickButtonsIntents(getApplicationContext(), appWidgetId);
-        WidgetProvider.setUpdatePeriod(updatePeriod);
+        TickScheduler.setUpdatePeriodMinutes(getApplicationContext(), updatePeriod);
 
         // those lines update the preference of the widget according to user's input
         // the editor allow us to update the sharedPreference object efficiently
@@ -170,6 +255,9 @@ public class WidgetConfigurationActivity extends AppCompatActivity {
         editor.putStringSet(calendarIdsSettingName, selectedIds);
         editor.putFloat(widgetBackgroundTransparency, opacity);
         editor.apply();
+        setSelectedCalendarIds(new ArrayList<>(selectedIds));
+        // widget is redrawn with the saved settings, the preview shown meanwhile is already clickable
+        WidgetProvider.requestUpdate(getApplicationContext(), appWidgetId);
 
         synchronized (saveButtonLock) {
             saveButtonLock.notify();
@@ -296,16 +384,21 @@ public class WidgetConfigurationActivity extends AppCompatActivity {
             sendResultAndExit(RESULT_CANCELED, appWidgetId);
         }
 
-        AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(this);
-        RemoteViews views = new RemoteViews(getPackageName(), R.layout.widget);
-
         // get calendars from googleCalendar and show them as list in the configuration screen
         // to give the user options which calendars he want to sync
-        List<CalendarInfo> calendars = CalendarAdapter.getCalendars(this);
-        Spinner dropdown = findViewById(R.id.calendars_dropdown);
-        calendars.add(0, new CalendarInfo()); // "ALL" item
-        spinnerAdapter = new SpinnerAdapter(this, android.R.layout.simple_spinner_dropdown_item, calendars);
-        dropdown.setAdapter(spinnerAdapter);
+        CalendarsCache.getInstance().getCalendars(this, new CalendarsCache.Listener() {
+            @Override
+            public void onCalendarsLoaded(List<CalendarInfo> calendars) {
+                if (isFinishing() || isDestroyed()) {
+                    return;
+                }
+                Spinner dropdown = findViewById(R.id.calendars_dropdown);
+                calendars.add(0, new CalendarInfo()); // "ALL" item
+                spinnerAdapter = new SpinnerAdapter(WidgetConfigurationActivity.this,
+                        android.R.layout.simple_spinner_dropdown_item, calendars);
+                dropdown.setAdapter(spinnerAdapter);
+            }
+        });
 
         updatePeriodEditText = findViewById(R.id.update_period);
 
@@ -328,10 +421,8 @@ public class WidgetConfigurationActivity extends AppCompatActivity {
         });
 
 
-        Point widgetSize = getWidgetSize(appWidgetManager, appWidgetId);
-        final int dayShift = 0;
-        drawWidget(this, views, widgetSize, dayShift);
-        appWidgetManager.updateAppWidget(appWidgetId, views);
+        // drawn in background, as other widgets may be rendered meanwhile
+        WidgetProvider.drawPreviewAsync(this, appWidgetId);
 
         // wait for the user to click on the save button -> when click the app will close and the
         // widget will appear
@@ -9,6 +9,7 @@ import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
 import android.graphics.Point;
 import android.os.Bundle;
 import android.support.v4.app.ActivityCompat;
@@ -23,6 +24,13 @@ import android.widget.Toast;
 import com.opensource.roundcalendar.R;
 
 import java.util.Calendar;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.opensource.roundcalendar.Logging.TAG;
 
@@ -34,28 +42,61 @@ public class WidgetProvider extends AppWidgetProvider{
     private static final String previousWeekAction = "previousWeekAction";
     private static final String nextWeekAction = "nextWeekAction";
     private static final String todayAction = "todayAction";
-    private static final String tickAction = "com.miltolstoy.roundcalendar.clockTickAction";
+    static final String tickAction = "com.miltolstoy.roundcalendar.clockTickAction";
     private static final String openCalendarAction = "openCalendarAction";
+    // adb shell am broadcast -a com.opensource.roundcalendar.dumpTraceAction -n com.opensource.roundcalendar/.WidgetProvider
+    private static final String dumpTraceAction = "com.opensource.roundcalendar.dumpTraceAction";
+    // when the tick alarm was scheduled to fire, passed along to the update to measure alarm skew
+    static final String tickTimeExtra = "tickTime";
 
-    // If widget update will be too frequent, Android will block it at all. If widget update period will be large, it
-    // will affect user experience. Recommended value >= 1 minute.
-    private static int updatePeriodMillis = 0;
-    private static final Object updatePeriodLock = new Object();
+    // Broadcast is considered as hanging after 10 seconds, so rendering has to be finished (or given up) earlier
+    private static final long renderDeadlineMillis = 8000;
+    private static final ExecutorService renderExecutor = Executors.newSingleThreadExecutor();
+    private static final ScheduledExecutorService renderDeadlineExecutor =
+            Executors.newSingleThreadScheduledExecutor();
+    // State each widget was last drawn with, ticks skip widgets whose state is still the same
+    private static final ConcurrentHashMap<Integer, WidgetRenderState> lastRenderStates = new ConcurrentHashMap<>();
+    // Click intents of each widget, in the order of clickViewIds, created once instead of on every update
+    private static final ConcurrentHashMap<Integer, PendingIntent[]> clickIntents = new ConcurrentHashMap<>();
+    private static final int[] clickViewIds = {R.id.previous_button, R.id.next_button, R.id.today_button,
+            R.id.next_week_button, R.id.previous_week_button, R.id.dateView};
+    private static final String[] clickActions = {previousDayAction, nextDayAction, todayAction, nextWeekAction,
+            previousWeekAction, openCalendarAction};
 
-    private static int daysShift = 0;
+    private long tickTimeMillis = 0;
 
 
     @Override
-    public void onEnabled(Context context)
-    {
-        if (context.checkSelfPermission(Manifest.permission.READ_CALENDAR) == PackageManager.PERMISSION_GRANTED) {
-            setupNextClockTick(context);
-        }
+    public void onDisabled(Context context) {
+        TickScheduler.cancel(context);
     }
 
+    @Override
+    public void onDeleted(Context context, int[] appWidgetIds) {
+        WidgetStates.remove(context, appWidgetIds);
+        for (int id : appWidgetIds) {
+            lastRenderStates.remove(id);
+            clickIntents.remove(id);
+        }
+    }
 
     @Override
     public void onReceive(Context context, Intent intent) {
+        Tracing.begin(Tracing.onReceive);
+        try {
+            handleReceive(context, intent);
+        } finally {
+            Tracing.end();
+        }
+    }
+
+    private void handleReceive(Context context, Intent intent) {
+        tickTimeMillis = intent.getLongExtra(tickTimeExtra, 0);
+        if (dumpTraceAction.equals(intent.getAction())) {
+            Logging.dumpTrace();
+            return;
+        }
+
         if (context.checkSelfPermission(Manifest.permission.READ_CALENDAR) == PackageManager.PERMISSION_GRANTED){
             String action = intent.getAction();
             if (action == null) {
@@ -63,19 +104,17 @@ public class WidgetProvider extends AppWidgetProvider{
                 return;
             }
 
+            int widgetId = intent.getIntExtra(AppWidgetManager.EXTRA_APPWIDGET_ID,
+                    AppWidgetManager.INVALID_APPWIDGET_ID);
             if (action.equals(openCalendarAction)){
-                WidgetConfigurationActivity.onClockClicked(context, daysShift);
+                WidgetConfigurationActivity.onClockClicked(context, WidgetStates.getDaysShift(context, widgetId));
                 return;
             }
 
+            // tick redraws only the widgets whose picture or texts have changed since they were drawn
             if (action.equals(tickAction)) {
-                setupNextClockTick(context);
-                Intent updateIntent = new Intent(context, WidgetProvider.class);
-                updateIntent.setAction(AppWidgetManager.ACTION_APPWIDGET_UPDATE);
                 int[] ids = AppWidgetManager.getInstance(context).getAppWidgetIds(new ComponentName(context, WidgetProvider.class));
-                updateIntent.putExtra(AppWidgetManager.EXTRA_APPWIDGET_IDS, ids);
-                context.sendBroadcast(updateIntent);
-                super.onReceive(context, intent);
+                drawAndUpdateAsync(context, ids, false, false);
                 return;
             }
 
@@ -86,6 +125,8 @@ public class WidgetProvider extends AppWidgetProvider{
                 return;
             }
 
+            // only the clicked widget moves, resizing (options change) keeps the shown day
+            int daysShift = WidgetStates.getDaysShift(context, widgetId);
             if (action.equals(previousDayAction)) {
                 daysShift -= 1;
             } else if (action.equals(nextDayAction)) {
@@ -96,12 +137,12 @@ public class WidgetProvider extends AppWidgetProvider{
             } else if (action.equals(nextWeekAction)) {
                 daysShift += 7;
             }
-            else {
+            else if (action.equals(todayAction)) {
                 daysShift = 0;
             }
+            WidgetStates.setDaysShift(context, widgetId, daysShift);
 
-            int widgetId = intent.getIntExtra(AppWidgetManager.EXTRA_APPWIDGET_ID, 0);
-            drawAndUpdate(context, widgetId);
+            drawAndUpdateAsync(context, new int[] {widgetId}, true, true);
             super.onReceive(context, intent);
         }
 
@@ -109,69 +150,164 @@ public class WidgetProvider extends AppWidgetProvider{
 
     @Override
     public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
-        for (int id : appWidgetIds) {
-            drawAndUpdate(context, id);
-            setOnClickButtonsIntents(context, id);
+        Tracing.begin(Tracing.onUpdate);
+        try {
+            drawAndUpdateAsync(context, appWidgetIds, true, false);
+        } finally {
+            Tracing.end();
         }
     }
 
 
-    public static void setUpdatePeriod(int value) {
-        synchronized (updatePeriodLock) {
-            updatePeriodMillis = value;
-        }
-    }
-
-    private int getUpdatePeriod() {
-        synchronized (updatePeriodLock) {
-            return updatePeriodMillis;
-        }
+    // Asks for the full redraw of the widget, as after its settings are changed
+    static void requestUpdate(Context context, int widgetId) {
+        Intent intent = new Intent(context, WidgetProvider.class);
+        intent.setAction(AppWidgetManager.ACTION_APPWIDGET_UPDATE);
+        intent.putExtra(AppWidgetManager.EXTRA_APPWIDGET_IDS, new int[] {widgetId});
+        context.sendBroadcast(intent);
     }
 
-    private static void setOnClickIntent(Context context, RemoteViews views, int widgetId, int viewId,
-                                         String intentAction) {
+    private static PendingIntent createClickIntent(Context context, int widgetId, String intentAction) {
         Intent intent = new Intent(context, WidgetProvider.class);
         intent.setAction(intentAction);
         intent.putExtra(AppWidgetManager.EXTRA_APPWIDGET_ID, widgetId);
-        PendingIntent pendingIntent = PendingIntent.getBroadcast(context, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT);
-        views.setOnClickPendingIntent(viewId, pendingIntent);
+        // extras are not a part of PendingIntent identity, so widget id is passed as request code to keep the
+        // intents of different widgets apart
+        return PendingIntent.getBroadcast(context, widgetId, intent, PendingIntent.FLAG_UPDATE_CURRENT);
     }
 
-    private static void drawAndUpdate(Context context, int widgetId) {
-        RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.widget);
+    // Renders widgets on the background executor, keeping the broadcast alive with goAsync() until rendering is
+    // done or the deadline is reached. Widgets keep showing their previous clock until rendering finishes, so nothing
+    // has to be re-sent when the deadline is missed. Unless forced, widgets which would be drawn the same as before are skipped.
+    private void drawAndUpdateAsync(Context context, final int[] widgetIds, final boolean force,
+                                    final boolean prefetchSurroundingDays) {
+        final Context applicationContext = context.getApplicationContext();
+        final long tickTime = tickTimeMillis;
+        final PendingResult pendingResult = goAsync();
+        final AtomicBoolean finished = new AtomicBoolean(false);
+        final int traceCookie = Tracing.beginAsync(Tracing.render);
+
+        final ScheduledFuture<?> deadline = renderDeadlineExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (!finished.compareAndSet(false, true)) {
+                    return;
+                }
+                Logging.w("Widget rendering missed the deadline, finishing the broadcast");
+                Tracing.endAsync(Tracing.render, traceCookie);
+                pendingResult.finish();
+            }
+        }, renderDeadlineMillis, TimeUnit.MILLISECONDS);
+
+        renderExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int id : widgetIds) {
+                        drawAndUpdate(applicationContext, id, tickTime, force);
+                    }
+                    if (prefetchSurroundingDays) {
+                        CalendarAdapter.getInstance().prefetchSurroundingDays();
+                    }
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Widget rendering failed", e);
+                } finally {
+                    // failed rendering should not stop the ticks
+                    try {
+                        TickScheduler.scheduleNextTick(applicationContext);
+                    } finally {
+                        if (finished.compareAndSet(false, true)) {
+                            deadline.cancel(false);
+                            Tracing.endAsync(Tracing.render, traceCookie);
+                            pendingResult.finish();
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    // Widget shown while the configuration screen is open. Drawn on the render executor like the rest of the updates,
+    // so the screen doesn't wait for the drawing lock held by renders of other widgets.
+    static void drawPreviewAsync(Context context, final int widgetId) {
+        final Context applicationContext = context.getApplicationContext();
+        renderExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    drawAndUpdate(applicationContext, widgetId, 0, true);
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Widget preview rendering failed", e);
+                }
+            }
+        });
+    }
+
+    // Clock, texts and click intents go in one full update, texts alone in a partial one
+    private static void drawAndUpdate(Context context, int widgetId, long tickTime, boolean force) {
+        UpdateMetrics.Sample metrics = UpdateMetrics.begin(widgetId, tickTime);
         AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
         Point widgetSize = WidgetConfigurationActivity.getWidgetSize(appWidgetManager, widgetId);
-        WidgetConfigurationActivity.drawWidget(context, views, widgetSize, daysShift);
-        appWidgetManager.updateAppWidget(widgetId, views);
-    }
+        int daysShift = WidgetStates.getDaysShift(context, widgetId);
+        WidgetRenderState state = WidgetConfigurationActivity.getRenderState(context, widgetSize, daysShift);
+        WidgetRenderState lastState = lastRenderStates.get(widgetId);
+        if (!force && state.equals(lastState)) {
+            if (Logging.DEBUG) {
+                Logging.d("Widget %d is unchanged, skipping redraw", widgetId);
+            }
+            return;
+        }
+        if (!force && state.hasSamePicture(lastState)) {
+            updateTexts(context, widgetId, widgetSize, daysShift, metrics);
+            lastRenderStates.put(widgetId, state);
+            return;
+        }
 
-    // set the behavior of the buttons - NEXT DAT, PREVIOUS DAY, TODAY DAY, NEXT WEEK PREVIOUS WEEK
-    public static void setOnClickButtonsIntents(Context context, int widgetId) {
         RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.widget);
-        setOnClickIntent(context, views, widgetId, R.id.previous_button, previousDayAction);
-        setOnClickIntent(context, views, widgetId, R.id.next_button, nextDayAction);
-        setOnClickIntent(context, views, widgetId, R.id.today_button, todayAction);
-        setOnClickIntent(context, views, widgetId, R.id.next_week_button, nextWeekAction);
-        setOnClickIntent(context, views, widgetId, R.id.previous_week_button, previousWeekAction);
-        setOnClickIntent(context, views, widgetId, R.id.dateView, openCalendarAction);
-        AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
-        appWidgetManager.updateAppWidget(widgetId, views);
+        Bitmap bitmap = WidgetConfigurationActivity.drawWidget(context, views, widgetSize, daysShift);
+        setOnClickButtonsIntents(context, views, widgetId);
+        metrics.drawn(bitmap.getByteCount());
+        Tracing.begin(Tracing.updateAppWidget);
+        try {
+            appWidgetManager.updateAppWidget(widgetId, views);
+        } finally {
+            Tracing.end();
+        }
+        metrics.updated();
+        // views are already parceled, so the bitmap can be reused
+        WidgetBitmapPool.release(bitmap);
+        lastRenderStates.put(widgetId, state);
+    }
 
+    // Bitmap is neither drawn nor sent, the widget keeps the one it has
+    private static void updateTexts(Context context, int widgetId, Point widgetSize, int daysShift,
+                                    UpdateMetrics.Sample metrics) {
+        RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.widget);
+        WidgetConfigurationActivity.drawWidgetTexts(context, views, widgetSize, daysShift);
+        metrics.drawn(0);
+        Tracing.begin(Tracing.partiallyUpdateAppWidget);
+        try {
+            AppWidgetManager.getInstance(context).partiallyUpdateAppWidget(widgetId, views);
+        } finally {
+            Tracing.end();
+        }
+        metrics.updated();
     }
 
-    private void setupNextClockTick(Context context) {
-        final int updatePeriod = getUpdatePeriod();
-        if (updatePeriod == 0) {
-            Log.d(TAG, "Widget auto-update is disabled");
-            return;
+    // set the behavior of the buttons - NEXT DAT, PREVIOUS DAY, TODAY DAY, NEXT WEEK PREVIOUS WEEK
+    // Only sets them on the views, they are sent together with the rest of the widget update
+    private static void setOnClickButtonsIntents(Context context, RemoteViews views, int widgetId) {
+        PendingIntent[] intents = clickIntents.get(widgetId);
+        if (intents == null) {
+            intents = new PendingIntent[clickActions.length];
+            for (int i = 0; i < clickActions.length; i++) {
+                intents[i] = createClickIntent(context, widgetId, clickActions[i]);
+            }
+            clickIntents.put(widgetId, intents);
+        }
+        for (int i = 0; i < clickViewIds.length; i++) {
+            views.setOnClickPendingIntent(clickViewIds[i], intents[i]);
         }
-        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-        Calendar calendar = Calendar.getInstance();
-        calendar.add(Calendar.MILLISECOND, updatePeriod);
-        Intent tickIntent = new Intent(context, WidgetProvider.class);
-        tickIntent.setAction(tickAction);
-        PendingIntent pendingIntent = PendingIntent.getBroadcast(context, 0, tickIntent, 0);
-        alarmManager.setExact(AlarmManager.RTC, calendar.getTimeInMillis(), pendingIntent);
     }
 
 }
@@ -0,0 +1,43 @@
+package com.opensource.roundcalendar;
+
+// Everything the picture and texts of a widget depend on. A widget is redrawn on tick only when its state differs
+// from the last drawn one, and only its texts are updated when the picture stays the same.
+final class WidgetRenderState {
+    int width;
+    int height;
+    int daysShift;
+    long dayStart; // start of the shown day
+    float backgroundOpacity;
+    boolean useCalendarColors;
+    long eventsVersion; // identifies the EventBuffer, a new one is built when calendar data changes
+    long eventsFingerprint; // which events are shown as ended
+    int handMinute; // quantized to the update period, the hand itself is drawn at the exact minute; -1 if not shown
+    long countdownMinutes; // -1 if the countdown is not shown
+
+    // All-day text depends only on the events, so it can't change while the picture stays the same
+    boolean hasSamePicture(WidgetRenderState state) {
+        return state != null && width == state.width && height == state.height && daysShift == state.daysShift
+                && dayStart == state.dayStart && backgroundOpacity == state.backgroundOpacity
+                && useCalendarColors == state.useCalendarColors && eventsVersion == state.eventsVersion
+                && eventsFingerprint == state.eventsFingerprint && handMinute == state.handMinute;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof WidgetRenderState)) {
+            return false;
+        }
+        WidgetRenderState state = (WidgetRenderState) other;
+        return hasSamePicture(state) && countdownMinutes == state.countdownMinutes;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 31 * width + height;
+        hash = 31 * hash + daysShift;
+        hash = 31 * hash + (int) (dayStart ^ (dayStart >>> 32));
+        hash = 31 * hash + (int) (eventsVersion ^ (eventsVersion >>> 32));
+        hash = 31 * hash + (int) (eventsFingerprint ^ (eventsFingerprint >>> 32));
+        return 31 * hash + handMinute;
+    }
+}
@@ -0,0 +1,46 @@
+package com.opensource.roundcalendar;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+// View state of each widget (the day it shows), so navigating one widget doesn't move the others. Kept in memory
+// and persisted, so it survives process death.
+final class WidgetStates {
+
+    private static final String daysShiftSettingPrefix = "daysShift.";
+
+    private static final ConcurrentHashMap<Integer, Integer> daysShifts = new ConcurrentHashMap<>();
+
+    private WidgetStates() {
+    }
+
+    static int getDaysShift(Context context, int widgetId) {
+        Integer shift = daysShifts.get(widgetId);
+        if (shift == null) {
+            shift = getPreferences(context).getInt(daysShiftSettingPrefix + widgetId, 0);
+            Integer loaded = daysShifts.putIfAbsent(widgetId, shift);
+            shift = (loaded != null) ? loaded : shift;
+        }
+        return shift;
+    }
+
+    static void setDaysShift(Context context, int widgetId, int shift) {
+        daysShifts.put(widgetId, shift);
+        getPreferences(context).edit().putInt(daysShiftSettingPrefix + widgetId, shift).apply();
+    }
+
+    static void remove(Context context, int[] widgetIds) {
+        SharedPreferences.Editor editor = getPreferences(context).edit();
+        for (int widgetId : widgetIds) {
+            daysShifts.remove(widgetId);
+            editor.remove(daysShiftSettingPrefix + widgetId);
+        }
+        editor.apply();
+    }
+
+    private static SharedPreferences getPreferences(Context context) {
+        return context.getSharedPreferences(WidgetConfigurationActivity.preferencesName, Context.MODE_PRIVATE);
+    }
+}
@@ -0,0 +1,68 @@
+package com.opensource.roundcalendar;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Random;
+
+// Synthetic day of events, similar to what calendar provider returns: recurring titles, overlapping meetings and a
+// few all-day events. Seeded, so every run benchmarks the same day.
+final class BenchmarkEvents {
+
+    private static final long minuteMillis = 60_000;
+    private static final int titlesCount = 20;
+    private static final int allDayEventsRatio = 20; // every 20th event
+
+    final long dayStart;
+    final int count;
+    final String[] titles;
+    final long[] starts;
+    final long[] finishes;
+    final boolean[] allDay;
+    final int[] colors;
+
+    private BenchmarkEvents(long dayStart, int count) {
+        this.dayStart = dayStart;
+        this.count = count;
+        titles = new String[count];
+        starts = new long[count];
+        finishes = new long[count];
+        allDay = new boolean[count];
+        colors = new int[count];
+    }
+
+    static BenchmarkEvents generate(int count) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(2020, Calendar.DECEMBER, 14, 0, 0, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        long dayStart = calendar.getTimeInMillis();
+
+        Random random = new Random(count);
+        BenchmarkEvents events = new BenchmarkEvents(dayStart, count);
+        for (int i = 0; i < count; i++) {
+            events.titles[i] = "Meeting #" + random.nextInt(titlesCount);
+            events.allDay[i] = i % allDayEventsRatio == 0;
+            if (events.allDay[i]) {
+                events.starts[i] = dayStart;
+                events.finishes[i] = dayStart + 24 * 60 * minuteMillis;
+            } else {
+                events.starts[i] = dayStart + random.nextInt(23 * 60) * minuteMillis;
+                events.finishes[i] = events.starts[i] + (15 + random.nextInt(106)) * minuteMillis;
+            }
+            events.colors[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        return events;
+    }
+
+    long getDayEnd() {
+        return dayStart + 24 * 60 * minuteMillis;
+    }
+
+    List<Event> materialize() {
+        List<Event> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            events.add(new Event(titles[i], starts[i], finishes[i], 0, allDay[i], colors[i]));
+        }
+        return events;
+    }
+}
@@ -0,0 +1,72 @@
+package com.opensource.roundcalendar;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Geometry and layout of the whole clock into draw commands. Command counts per scene are printed once in setup.
+@State(Scope.Thread)
+public class ClockSceneBenchmark {
+
+    private static final int widgetSide = 540;
+    private static final float density = 2.625f;
+    private static final int currentMinute = 12 * 60;
+
+    @Param({"10", "100", "1000"})
+    public int eventsPerDay;
+
+    private ClockGeometry geometry;
+    private EventBuffer eventBuffer;
+    private ClockScene warmScene;
+    private final TextMeasurer textMeasurer = new FixedWidthTextMeasurer();
+    private final DrawCommandList commands = new DrawCommandList();
+    private final ClockPoint handStart = new ClockPoint();
+    private final ClockPoint handEnd = new ClockPoint();
+
+    @Setup
+    public void setUp() {
+        geometry = ClockGeometry.get(widgetSide, widgetSide, density);
+        BenchmarkEvents events = BenchmarkEvents.generate(eventsPerDay);
+        eventBuffer = new EventBuffer(events.materialize(), events.dayStart, events.getDayEnd());
+        warmScene = new ClockScene(geometry, textMeasurer, true);
+
+        commands.clear();
+        warmScene.emitDial(commands);
+        warmScene.emitEvents(commands, eventBuffer, currentMinute, false);
+        warmScene.emitHand(commands, currentMinute);
+        System.out.println("\nScene of " + eventsPerDay + " events: " + commands.getSize() + " commands ("
+                + commands.getCount(DrawCommandList.arcCommand) + " arcs, "
+                + commands.getCount(DrawCommandList.lineCommand) + " lines, "
+                + commands.getCount(DrawCommandList.circleCommand) + " circles, "
+                + commands.getCount(DrawCommandList.textCommand) + " texts)");
+    }
+
+    // New events: lanes, fitted titles and commands are calculated from scratch
+    @Benchmark
+    public int layoutNewEvents() {
+        ClockScene scene = new ClockScene(geometry, textMeasurer, true);
+        commands.clear();
+        scene.emitEvents(commands, eventBuffer, currentMinute, false);
+        return commands.getSize();
+    }
+
+    // Same events on the next tick: only commands are emitted
+    @Benchmark
+    public int layoutSameEvents() {
+        commands.clear();
+        warmScene.emitEvents(commands, eventBuffer, currentMinute, false);
+        return commands.getSize();
+    }
+
+    @Benchmark
+    public int handForEveryMinute() {
+        int sum = 0;
+        for (int minute = 0; minute < 24 * 60; minute++) {
+            geometry.getHandCoordinates(minute, handStart, handEnd);
+            sum += handEnd.x;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,42 @@
+package com.opensource.roundcalendar;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+public class DurationParsingBenchmark {
+
+    // a handful of values, as recurring events have
+    private static final String[] recurringDurations = {"P3600S", "P1D", "PT1H30M", "P1800S", "-P1W", "P2DT12H"};
+
+    // more distinct values than the parser memoizes
+    private String[] distinctDurations;
+
+    @Setup
+    public void setUp() {
+        distinctDurations = new String[64];
+        for (int i = 0; i < distinctDurations.length; i++) {
+            distinctDurations[i] = "PT" + (i + 1) + "H" + (i % 60) + "M";
+        }
+    }
+
+    @Benchmark
+    public long recurringDurations() {
+        long total = 0;
+        for (String duration : recurringDurations) {
+            total += Rfc5545Duration.toMilliSeconds(duration);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long distinctDurations() {
+        long total = 0;
+        for (String duration : distinctDurations) {
+            total += Rfc5545Duration.toMilliSeconds(duration);
+        }
+        return total;
+    }
+}
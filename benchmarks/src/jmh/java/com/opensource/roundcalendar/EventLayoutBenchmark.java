@@ -0,0 +1,30 @@
+package com.opensource.roundcalendar;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Grouping of overlapping events into concentric lanes
+@State(Scope.Thread)
+public class EventLayoutBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int eventsPerDay;
+
+    private EventBuffer eventBuffer;
+    private final EventLayout eventLayout = new EventLayout();
+
+    @Setup
+    public void setUp() {
+        BenchmarkEvents events = BenchmarkEvents.generate(eventsPerDay);
+        eventBuffer = new EventBuffer(events.materialize(), events.dayStart, events.getDayEnd());
+    }
+
+    @Benchmark
+    public int layout() {
+        eventLayout.layout(eventBuffer);
+        return eventLayout.getLaneCount(eventBuffer.getSize() - 1);
+    }
+}
@@ -0,0 +1,27 @@
+package com.opensource.roundcalendar;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Turning provider rows into Event objects and the per-day structures drawn from them
+@State(Scope.Thread)
+public class EventMaterializationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int eventsPerDay;
+
+    private BenchmarkEvents events;
+
+    @Setup
+    public void setUp() {
+        events = BenchmarkEvents.generate(eventsPerDay);
+    }
+
+    @Benchmark
+    public DayEvents materializeDay() {
+        return new DayEvents(events.materialize(), events.dayStart, events.getDayEnd());
+    }
+}
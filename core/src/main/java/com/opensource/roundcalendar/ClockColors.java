@@ -0,0 +1,33 @@
+package com.opensource.roundcalendar;
+
+// ARGB colors used by the clock layout, same packing as android.graphics.Color
+final class ClockColors {
+
+    static final int transparent = 0;
+    static final int black = 0xFF000000;
+    static final int white = 0xFFFFFFFF;
+    static final int gray = 0xFF888888;
+    static final int red = 0xFFFF0000;
+    static final int blue = 0xFF0000FF;
+
+    private ClockColors() {
+    }
+
+    static int alpha(int color) {
+        return color >>> 24;
+    }
+
+    static int withAlpha(int color, int alpha) {
+        return (color & 0x00FFFFFF) | (alpha << 24);
+    }
+
+    // Same as ColorUtils.blendARGB: every channel, including alpha, is blended separately
+    static int blend(int color1, int color2, float ratio) {
+        float inverseRatio = 1 - ratio;
+        int a = (int) (alpha(color1) * inverseRatio + alpha(color2) * ratio);
+        int r = (int) (((color1 >> 16) & 0xFF) * inverseRatio + ((color2 >> 16) & 0xFF) * ratio);
+        int g = (int) (((color1 >> 8) & 0xFF) * inverseRatio + ((color2 >> 8) & 0xFF) * ratio);
+        int b = (int) ((color1 & 0xFF) * inverseRatio + (color2 & 0xFF) * ratio);
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+}
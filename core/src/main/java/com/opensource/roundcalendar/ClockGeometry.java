@@ -0,0 +1,357 @@
+package com.opensource.roundcalendar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Getter;
+
+/*
+    Layout of the clock for one widget size. It's immutable and computed once per (size, density), so everything
+    derived from the size (markers, digits, ring) is calculated in advance. Returned points and rects are shared
+    objects, they should not be modified by callers.
+ */
+class ClockGeometry {
+
+    // Few widget sizes are expected (one per widget, and one more while resizing)
+    private static final int maxGeometries = 3;
+    private static final Map<Key, ClockGeometry> geometries = new LinkedHashMap<Key, ClockGeometry>(
+            maxGeometries, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, ClockGeometry> eldest) {
+            return size() > maxGeometries;
+        }
+    };
+
+    // Sine and cosine of the clock angle at minute resolution: 24 hours dial makes a quarter of degree per minute
+    private static final int minutesPerDay = 24 * 60;
+    private static final float minutesPerDegree = (float) minutesPerDay / 360;
+    private static final float[] minuteSin = new float[minutesPerDay];
+    private static final float[] minuteCos = new float[minutesPerDay];
+
+    @Getter private final int paddingRadius;
+    @Getter private final int paddingDigits = 0;
+    @Getter private final int borderColor = ClockColors.white;
+    @Getter private final int fillColor = ClockColors.transparent;
+    @Getter private final int digitColor = ClockColors.white;
+    @Getter private final int eventTitleColor = ClockColors.white;
+    @Getter private final int eventArcColor = ClockColors.blue; // seems like default Google Calendar event color
+    private static final int[] degrees = {0, 15, 30, 45, 60, 75, 90, 105, 120, 135, 150, 165, 180, 195, 210, 225,
+            240, 255, 270, 285, 300, 315, 330, 345};
+
+
+    @Getter private final int borderWidth;
+    @Getter private final int handWidth;
+    @Getter private final int dotRadius;
+    @Getter private final int smallDigitSize;
+    @Getter private final int bigDigitSize;
+    @Getter private final int dateSize;
+    @Getter private final int titleSize;
+    private final int markersLength;
+    private final double tiltedMarkersLength;
+    private final double digitRadiusPadding;
+    private final int dayOfWeekXPadding;
+    private final int dayOfWeekYPadding;
+    private final int allDayEventsXPadding;
+    private final int allDayEventsYPadding;
+
+    @Getter private final ClockPoint center;
+    @Getter private final float radius;
+    @Getter private final ClockPoint screenSize;
+    private final List<ClockPoint> hoursCoordinates;
+    private final List<List<ClockPoint>> hourMarkers;
+    private final List<ClockPoint> digitsCoordinates;
+    private final ClockRect widgetCircle;
+
+    static {
+        for (int minute = 0; minute < minutesPerDay; minute++) {
+            double radians = Math.toRadians(minute / minutesPerDegree);
+            minuteSin[minute] = (float) Math.sin(radians);
+            minuteCos[minute] = (float) Math.cos(radians);
+        }
+    }
+
+    static ClockGeometry get(int width, int height, float density) {
+        Key key = new Key(width, height, density);
+        synchronized (geometries) {
+            ClockGeometry geometry = geometries.get(key);
+            if (geometry == null) {
+                geometry = new ClockGeometry(new ClockPoint(width, height));
+                geometries.put(key, geometry);
+            }
+            return geometry;
+        }
+    }
+
+    private ClockGeometry(ClockPoint screenSize) {
+        this.screenSize = screenSize;
+        int side = (screenSize.x < screenSize.y) ? screenSize.x : screenSize.y;
+        int padding = side / 13;
+
+        borderWidth = side / 100;
+        dotRadius = side / 100;
+        smallDigitSize = side / 40;
+        bigDigitSize = side / 25;
+        dateSize = side / 18;
+        markersLength = side / 36 ;
+        dayOfWeekXPadding = side / 36;
+        dayOfWeekYPadding = side / 8;
+        allDayEventsXPadding = side / 36;
+        allDayEventsYPadding = (int) (side * 0.99);
+
+        titleSize = side / 30;
+
+        handWidth = borderWidth / 2;
+        tiltedMarkersLength = markersLength * 0.7;
+        digitRadiusPadding = padding * 0.5;
+        radius = side / 2 - padding ;
+        paddingRadius = (int)(radius*0.28);
+
+
+        center = calculateWidgetCenter(screenSize, radius, dateSize);
+        hoursCoordinates = calculateHoursCoordinates();
+        hourMarkers = calculateHourMarkersCoordinates();
+        digitsCoordinates = calculateDigitsCoordinates();
+        widgetCircle = calculateWidgetCircle();
+    }
+
+    List<List<ClockPoint>> getHourMarkersCoordinates() {
+        return hourMarkers;
+    }
+
+    List<ClockPoint> getHourDotsCoordinates() {
+        List<ClockPoint> dots = new ArrayList<>();
+        for (int i = 0; i < hoursCoordinates.size(); i++) {
+            if (i % 3 != 0) {
+                dots.add(hoursCoordinates.get(i));
+            }
+        }
+        return dots;
+    }
+
+    void getHandCoordinates(int minuteOfDay, ClockPoint handStart, ClockPoint handEnd) {
+        calculateMinutePoint(minuteOfDay, radius, handEnd);
+        calculateMinutePoint(minuteOfDay, radius - paddingRadius*2, handStart);
+    }
+
+    List<ClockPoint> getDigitsCoordinates() {
+        return digitsCoordinates;
+    }
+
+    ClockPoint getDateCoordinates() {
+        return new ClockPoint(center.x, center.y);
+    }
+
+    ClockPoint getDayOfWeekCoordinates() {
+        return new ClockPoint(dayOfWeekXPadding, dayOfWeekYPadding);
+    }
+
+    ClockPoint getAllDayEventListCoordinates() {
+        return new ClockPoint(allDayEventsXPadding, allDayEventsYPadding);
+    }
+
+    ClockRect getWidgetCircleObject() {
+        return widgetCircle;
+    }
+
+    void getEventDegrees(EventBuffer events, int index, EventDegreeData result) {
+        float startDegree = timeToDegree(events.getShownStartMinute(index));
+        float endDegree = timeToDegree(events.getShownFinishMinute(index));
+
+        float sweepDegree;
+        if (startDegree == endDegree) { // event with zero duration
+            sweepDegree = (float) 0.001;
+        } else {
+            sweepDegree = endDegree - startDegree;
+            if (sweepDegree < -180) {
+                sweepDegree += 360;
+            }
+        }
+
+        result.set(startDegree, sweepDegree);
+    }
+
+    void calculateEventTitlePoint(double degree, float laneOffset, int padding, ClockPoint result) {
+        calculateConcentricPoint(degree, radius - markersLength - laneOffset - padding, result);
+    }
+
+    // Width of one lane, when events ring is split to the given number of concentric lanes
+    float getLaneWidth(int laneCount) {
+        return (float) paddingRadius * 2 / laneCount;
+    }
+
+    // Circle going through the middle of the lane, lane 0 is the outer one
+    void getLaneCircle(int lane, int laneCount, ClockRect result) {
+        float laneWidth = getLaneWidth(laneCount);
+        float laneRadius = widgetCircle.width() / 2 + paddingRadius - laneWidth * (lane + 0.5f);
+        result.set(widgetCircle.centerX() - laneRadius, widgetCircle.centerY() - laneRadius,
+                widgetCircle.centerX() + laneRadius, widgetCircle.centerY() + laneRadius);
+    }
+
+
+    float getWidgetWidth() {
+        return 2 * (radius + bigDigitSize + (float) digitRadiusPadding);
+    }
+
+
+    private static ClockPoint calculateWidgetCenter(ClockPoint screenSize, float radius, int dateSize) {
+        float yPosition = radius + dateSize;
+        yPosition = (yPosition > (float) screenSize.y / 2) ? (float) screenSize.y / 2 : yPosition;
+        return new ClockPoint(screenSize.x / 2, Math.round(yPosition));
+    }
+
+    private float timeToDegree(int minuteOfDay) {
+        return (float) minuteOfDay / 60 * 15 - 90;
+    }
+
+    private List<List<ClockPoint>> calculateHourMarkersCoordinates() {
+        List<List<ClockPoint>> markers = new ArrayList<>();
+        for (int i = 0; i < hoursCoordinates.size(); i++) {
+            if (i % 3 != 0) {
+                continue;
+            }
+
+            ClockPoint hTStart = hoursCoordinates.get(i);
+            double xStop, yStop;
+            switch (i) {
+                case 0:
+                    xStop = hTStart.x;
+                    yStop = hTStart.y + markersLength;
+                    break;
+                case 6:
+                    xStop = hTStart.x - markersLength;
+                    yStop = hTStart.y;
+                    break;
+                case 12:
+                    xStop = hTStart.x;
+                    yStop = hTStart.y - markersLength;
+                    break;
+                case 18:
+                    xStop = hTStart.x + markersLength;
+                    yStop = hTStart.y;
+                    break;
+                default:
+                    xStop = i < 12 ? hTStart.x - tiltedMarkersLength : hTStart.x + tiltedMarkersLength;
+                    yStop = (i < 6) || (i > 18) ? hTStart.y + tiltedMarkersLength : hTStart.y - tiltedMarkersLength;
+            }
+
+            ClockPoint hTStop = new ClockPoint( (int) Math.round(xStop), (int) Math.round(yStop));
+            List<ClockPoint> hourT = Collections.unmodifiableList(Arrays.asList(hTStart, hTStop));
+            markers.add(hourT);
+        }
+        return Collections.unmodifiableList(markers);
+    }
+
+    private List<ClockPoint> calculateDigitsCoordinates() {
+        List<ClockPoint> digits = new ArrayList<>();
+        for (int degree : degrees) {
+//            some magic to make digits positions looks symmetric
+            double padding = digitRadiusPadding;
+            if (degree != 0 && degree <= 135) {
+                degree += 1;
+            }
+            else if (degree >= 225) {
+                degree -= 1;
+            }
+            if (degree < 180 && degree > 90)
+            {
+                padding = padding - (10 - (float) degree / 15) ;
+            }
+            else if (degree < 180) {
+                padding = padding - (10 - (float) degree / 15) - 10;
+            }
+            else if (degree < 240)
+            {
+                padding = padding - (10 -  (360 - (float) degree) / 15) + 10;
+            }
+            else {
+                padding = padding - (10 -  (360 - (float) degree) / 15);
+            }
+            digits.add(calculateConcentricPoint(degree, Math.round(radius + padding)));
+        }
+        return Collections.unmodifiableList(digits);
+    }
+
+    private ClockPoint calculateCircumferencePoint(double degree) {
+        return calculateConcentricPoint(degree, radius);
+    }
+
+    private ClockPoint calculateConcentricPoint(double degree, float radius) {
+        ClockPoint point = new ClockPoint();
+        calculateConcentricPoint(degree, radius, point);
+        return point;
+    }
+
+    // Degrees are rounded to the minute resolution of the tables, which is a quarter of degree
+    private void calculateConcentricPoint(double degree, float radius, ClockPoint result) {
+        int minute = (int) Math.round(degree * minutesPerDegree) % minutesPerDay;
+        if (minute < 0) {
+            minute += minutesPerDay;
+        }
+        calculateMinutePoint(minute, radius, result);
+    }
+
+    private void calculateMinutePoint(int minuteOfDay, float radius, ClockPoint result) {
+        double x = center.x + radius * minuteSin[minuteOfDay];
+        double y = center.y - radius * minuteCos[minuteOfDay];
+        result.set((int) Math.round(x), (int) Math.round(y));
+    }
+
+    private ClockRect calculateWidgetCircle() {
+        ClockRect oval = new ClockRect();
+        oval.set(hourMarkers.get(6).get(0).x + paddingRadius,
+                hourMarkers.get(0).get(0).y + paddingRadius,
+                hourMarkers.get(2).get(0).x - paddingRadius,
+                hourMarkers.get(4).get(0).y - paddingRadius);
+
+        return oval;
+    }
+
+
+    private List<ClockPoint> calculateHoursCoordinates() {
+        List<ClockPoint> hours = new ArrayList<>();
+        for (int degree : degrees) {
+            hours.add(calculateCircumferencePoint(degree));
+        }
+        return Collections.unmodifiableList(hours);
+    }
+
+    static class EventDegreeData {
+        @Getter private float start;
+        @Getter private float sweep;
+
+        void set(float start, float sweep) {
+            this.start = start;
+            this.sweep = sweep;
+        }
+    }
+
+    private static class Key {
+        private final int width;
+        private final int height;
+        private final float density;
+
+        Key(int width, int height, float density) {
+            this.width = width;
+            this.height = height;
+            this.density = density;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return width == key.width && height == key.height && density == key.density;
+        }
+
+        @Override
+        public int hashCode() {
+            return (31 * width + height) * 31 + Float.floatToIntBits(density);
+        }
+    }
+}
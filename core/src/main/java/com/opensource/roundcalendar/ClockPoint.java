@@ -0,0 +1,34 @@
+package com.opensource.roundcalendar;
+
+// Integer point of the clock layout, so geometry doesn't depend on android.graphics
+class ClockPoint {
+    int x;
+    int y;
+
+    ClockPoint() {
+    }
+
+    ClockPoint(int x, int y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    void set(int x, int y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof ClockPoint)) {
+            return false;
+        }
+        ClockPoint point = (ClockPoint) other;
+        return x == point.x && y == point.y;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * x + y;
+    }
+}
@@ -0,0 +1,32 @@
+package com.opensource.roundcalendar;
+
+// Float rectangle of the clock layout, used as an oval bounds for arcs
+class ClockRect {
+    float left;
+    float top;
+    float right;
+    float bottom;
+
+    void set(float left, float top, float right, float bottom) {
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+    }
+
+    void set(ClockRect other) {
+        set(other.left, other.top, other.right, other.bottom);
+    }
+
+    float width() {
+        return right - left;
+    }
+
+    float centerX() {
+        return (left + right) / 2;
+    }
+
+    float centerY() {
+        return (top + bottom) / 2;
+    }
+}
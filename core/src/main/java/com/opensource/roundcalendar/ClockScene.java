@@ -0,0 +1,204 @@
+package com.opensource.roundcalendar;
+
+import java.util.List;
+
+import lombok.Setter;
+
+/*
+    Layout stage of the clock: turns geometry and events into draw commands for a DrawCommandSink. It doesn't touch
+    android.graphics, so a whole scene can be laid out, counted and timed on a plain JVM. Everything which depends only
+    on the events (lanes, fitted titles, all-day text) is memoized per EventBuffer.
+ */
+class ClockScene {
+
+    static final int defaultEventColor = 0xFF81C4FD;
+    private static final int eventAlpha = 80;
+    private static final int ringColor = ClockColors.withAlpha(ClockColors.black, 70);
+    private static final float minSweep = (float) 0.5;
+    private static final String[] digitLabels = new String[24];
+
+    private final ClockGeometry geometry;
+    private final TextMeasurer titleMeasurer;
+    @Setter private boolean useCalendarColors;
+
+    // scratch objects, reused by every layout
+    private final ClockPoint titlePoint = new ClockPoint();
+    private final ClockPoint handStart = new ClockPoint();
+    private final ClockPoint handEnd = new ClockPoint();
+    private final ClockGeometry.EventDegreeData eventDegrees = new ClockGeometry.EventDegreeData();
+    private final ClockRect laneCircle = new ClockRect();
+    private final StringBuilder textBuilder = new StringBuilder();
+
+    // memoized for the last laid out EventBuffer
+    private EventBuffer memoEvents = null;
+    private final EventLayout eventLayout = new EventLayout();
+    private String[] eventTitles = new String[0]; // fitted title, drawn for the event
+    private int[] eventTitleWidths = new int[0];
+    private int[] eventTitleHeights = new int[0];
+    private String allDayText = "";
+
+    static {
+        for (int i = 0; i < digitLabels.length; i++) {
+            digitLabels[i] = Integer.toString(i);
+        }
+    }
+
+    ClockScene(ClockGeometry geometry, TextMeasurer titleMeasurer, boolean useCalendarColors) {
+        this.geometry = geometry;
+        this.titleMeasurer = titleMeasurer;
+        this.useCalendarColors = useCalendarColors;
+    }
+
+    // Ring, border, hour markers and digits
+    void emitDial(DrawCommandSink sink) {
+        sink.arc(geometry.getWidgetCircleObject(), -90, 360, geometry.getPaddingRadius() * 2, ringColor);
+
+        ClockPoint center = geometry.getCenter();
+        sink.circle(center.x, center.y, geometry.getRadius() + geometry.getPaddingDigits(),
+                DrawCommandSink.styleBorder);
+
+        List<List<ClockPoint>> markers = geometry.getHourMarkersCoordinates();
+        for (int i = 0; i < markers.size(); i++) {
+            ClockPoint start = markers.get(i).get(0);
+            ClockPoint stop = markers.get(i).get(1);
+            sink.line(start.x, start.y, stop.x, stop.y, DrawCommandSink.styleBorder);
+        }
+
+        List<ClockPoint> digits = geometry.getDigitsCoordinates();
+        for (int i = 0; i < digits.size(); i += 3) {
+            ClockPoint coords = digits.get(i);
+            sink.text(digitLabels[i], coords.x, coords.y, 0, DrawCommandSink.styleDigit);
+        }
+    }
+
+    // Arcs and titles of the timed events, ended ones are grayed out unless another day is shown
+    void emitEvents(DrawCommandSink sink, EventBuffer events, int currentMinute, boolean shifted) {
+        prepareEvents(events);
+        for (int i = 0; i < events.getSize(); i++) {
+            if (events.isAllDay(i)) {
+                continue;
+            }
+            boolean ended = events.isEnd(i, currentMinute) && !shifted;
+            emitEvent(sink, events, i, ended ? ClockColors.gray : events.getColor(i));
+        }
+    }
+
+    void emitHand(DrawCommandSink sink, int minuteOfDay) {
+        geometry.getHandCoordinates(minuteOfDay, handStart, handEnd);
+        sink.line(handStart.x, handStart.y, handEnd.x, handEnd.y, DrawCommandSink.styleHand);
+    }
+
+    // Everything emitEvents() output depends on besides the events themselves: which events are already ended
+    // (grayed out) and which colors are used
+    long getEventsFingerprint(EventBuffer events, int currentMinute, boolean shifted) {
+        long fingerprint = useCalendarColors ? 1 : 0;
+        if (shifted) {
+            return fingerprint;
+        }
+        for (int i = 0; i < events.getSize(); i++) {
+            if (!events.isAllDay(i) && events.isEnd(i, currentMinute)) {
+                fingerprint = fingerprint * 31 + i + 2;
+            }
+        }
+        return fingerprint;
+    }
+
+    String getAllDayText(EventBuffer events) {
+        prepareEvents(events);
+        return allDayText;
+    }
+
+    // Calculates everything, which depends only on the events: lanes of overlapping events, fitted titles and
+    // their bounds
+    private void prepareEvents(EventBuffer events) {
+        if (events == memoEvents) {
+            return;
+        }
+        int eventsCount = events.getSize();
+        if (eventTitles.length < eventsCount) {
+            eventTitles = new String[eventsCount];
+            eventTitleWidths = new int[eventsCount];
+            eventTitleHeights = new int[eventsCount];
+        }
+
+        eventLayout.layout(events);
+        for (int i = 0; i < eventsCount; i++) {
+            eventTitles[i] = null;
+            if (events.isAllDay(i)) {
+                continue;
+            }
+            MeasuredText title = titleMeasurer.fit(events.getTitle(i),
+                    geometry.getLaneWidth(eventLayout.getLaneCount(i)));
+            eventTitles[i] = title.getText();
+            eventTitleWidths[i] = title.getWidth();
+            eventTitleHeights[i] = title.getHeight();
+        }
+
+        allDayText = buildAllDayText(events);
+        memoEvents = events;
+    }
+
+    // build the string that represent the all day events and show it as text under the clock
+    private String buildAllDayText(EventBuffer events) {
+        boolean[] listedTitles = new boolean[events.getTitlesCount()];
+        textBuilder.setLength(0);
+        textBuilder.append("All-day: ");
+        boolean hasAllDayEvents = false;
+        for (int i = 0; i < events.getSize(); i++) {
+            int titleIndex = events.getTitleIndex(i);
+            if (!events.isAllDay(i) || listedTitles[titleIndex]) {
+                continue;
+            }
+            listedTitles[titleIndex] = true; // each title is listed once
+            hasAllDayEvents = true;
+            textBuilder.append(events.getTitle(i).trim());
+            textBuilder.append(", ");
+        }
+        if (!hasAllDayEvents) {
+            return "";
+        }
+        textBuilder.setLength(textBuilder.length() - 2); // cut out last comma
+        return titleMeasurer.fit(textBuilder.toString(), geometry.getWidgetWidth()).getText();
+    }
+
+    private void emitEvent(DrawCommandSink sink, EventBuffer events, int index, int color) {
+        geometry.getEventDegrees(events, index, eventDegrees);
+        int lane = eventLayout.getLane(index);
+        int laneCount = eventLayout.getLaneCount(index);
+        ClockRect eventCircle = geometry.getWidgetCircleObject();
+        if (laneCount > 1) {
+            geometry.getLaneCircle(lane, laneCount, laneCircle);
+            eventCircle = laneCircle;
+        }
+        float laneWidth = geometry.getLaneWidth(laneCount);
+        int arcColor = ClockColors.withAlpha(useCalendarColors ? color : defaultEventColor, eventAlpha);
+        float sweepAngle = Math.max(eventDegrees.getSweep(), minSweep);
+        float startAngle = eventDegrees.getStart();
+        sink.arc(eventCircle, startAngle, sweepAngle, laneWidth, arcColor);
+        sink.arc(eventCircle, startAngle, sweepAngle, laneWidth, ClockColors.blend(arcColor, ClockColors.black, 0.1f));
+
+        /*
+            α = arcsin(l / (2 * R)) * 360 / π
+            where l - horde length (text height)
+        */
+        double titleTextAngle = Math.toDegrees(Math.asin(Math.toRadians(eventTitleHeights[index] /
+                (2 * geometry.getRadius())))) * (double) 360 / Math.PI;
+        titleTextAngle /= 2; // half of text angle is needed to center it
+        float titleAngle = eventDegrees.getStart() + eventDegrees.getSweep() / 2 + 90;
+        final float rotateAngle;
+        final int padding;
+        if (events.isFinishedInFirstDayHalf(index))
+        {
+            titleAngle += (float) titleTextAngle; // move forward on half of text angle
+            rotateAngle = titleAngle - 90;
+            padding = eventTitleWidths[index]; // title text: center->radius // need to change according to stroke width
+        } else {
+            titleAngle -= (float) titleTextAngle; // move backward on half of text angle
+            rotateAngle = titleAngle - 270;
+            padding = 0; // title text: radius->center
+        }
+
+        geometry.calculateEventTitlePoint(titleAngle, laneWidth * lane, padding, titlePoint);
+        sink.text(eventTitles[index], titlePoint.x, titlePoint.y, rotateAngle, DrawCommandSink.styleTitle);
+    }
+}
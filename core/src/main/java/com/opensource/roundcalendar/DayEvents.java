@@ -0,0 +1,72 @@
+package com.opensource.roundcalendar;
+
+import java.util.Arrays;
+import java.util.List;
+
+import lombok.Getter;
+
+// Events of a single day, kept only as an EventBuffer, with sorted indexes of their start and end times. Built once
+// per day load.
+// All-day events are left out of both indexes: they start at UTC midnight, which is some arbitrary local time, and
+// their start doesn't change anything on the clock.
+class DayEvents {
+
+    private static final long minuteMillis = 60_000;
+
+    @Getter private final EventBuffer eventBuffer;
+    private final long[] startTimes;
+    private final long[] endTimes; // when events are shown as ended: start of the minute after the finish minute
+
+    DayEvents(List<Event> events, long dayStart, long dayEnd) {
+        eventBuffer = new EventBuffer(events, dayStart, dayEnd);
+        int size = eventBuffer.getSize();
+        int startsCount = 0;
+        long[] starts = new long[size];
+        for (int i = 0; i < size; i++) {
+            if (!eventBuffer.isAllDay(i)) {
+                starts[startsCount++] = eventBuffer.getStartTime(i);
+            }
+        }
+        startTimes = Arrays.copyOf(starts, startsCount);
+        Arrays.sort(startTimes);
+
+        int endsCount = 0;
+        long[] ends = new long[size];
+        for (int i = 0; i < size; i++) {
+            if (!eventBuffer.isAllDay(i) && eventBuffer.isSingleDate(i)) { // the same condition as EventBuffer.isEnd()
+                long finish = eventBuffer.getFinishTime(i);
+                ends[endsCount++] = finish - finish % minuteMillis + minuteMillis;
+            }
+        }
+        endTimes = Arrays.copyOf(ends, endsCount);
+        Arrays.sort(endTimes);
+    }
+
+    // Returns the earliest start time of a timed event which is not before the given time, or 0 if no event starts
+    // after it.
+    long findNextStartTime(long time) {
+        int index = Arrays.binarySearch(startTimes, time);
+        if (index < 0) {
+            index = -index - 1; // insertion point
+        }
+        return (index < startTimes.length) ? startTimes[index] : 0;
+    }
+
+    // Returns the earliest time after the given one, when an event starts or is shown as ended, or 0 if there is none.
+    long findNextChange(long time) {
+        long nextStart = findFirstAfter(startTimes, time);
+        long nextEnd = findFirstAfter(endTimes, time);
+        if (nextStart == 0 || nextEnd == 0) {
+            return Math.max(nextStart, nextEnd);
+        }
+        return Math.min(nextStart, nextEnd);
+    }
+
+    private static long findFirstAfter(long[] sortedTimes, long time) {
+        int index = Arrays.binarySearch(sortedTimes, time + 1);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return (index < sortedTimes.length) ? sortedTimes[index] : 0;
+    }
+}
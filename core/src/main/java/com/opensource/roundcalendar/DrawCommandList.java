@@ -0,0 +1,119 @@
+package com.opensource.roundcalendar;
+
+import java.util.Arrays;
+
+import lombok.Getter;
+
+// Recording backend: keeps commands in parallel arrays, so they can be counted, compared and replayed into another
+// sink. Arrays grow on demand and are reused after clear().
+class DrawCommandList implements DrawCommandSink {
+
+    static final int arcCommand = 0;
+    static final int lineCommand = 1;
+    static final int circleCommand = 2;
+    static final int textCommand = 3;
+    private static final int commandTypes = 4;
+
+    private static final int paramsPerCommand = 7;
+    private static final int initialCapacity = 32;
+
+    @Getter private int size = 0;
+    private int[] types = new int[initialCapacity];
+    private int[] styles = new int[initialCapacity]; // color for arcs
+    private float[] params = new float[initialCapacity * paramsPerCommand];
+    private String[] texts = new String[initialCapacity];
+    private final int[] typeCounts = new int[commandTypes];
+    private final ClockRect oval = new ClockRect();
+
+    void clear() {
+        Arrays.fill(texts, 0, size, null);
+        Arrays.fill(typeCounts, 0);
+        size = 0;
+    }
+
+    int getCount(int commandType) {
+        return typeCounts[commandType];
+    }
+
+    int getType(int index) {
+        return types[index];
+    }
+
+    String getText(int index) {
+        return texts[index];
+    }
+
+    void replay(DrawCommandSink sink) {
+        for (int i = 0; i < size; i++) {
+            int p = i * paramsPerCommand;
+            switch (types[i]) {
+                case arcCommand:
+                    oval.set(params[p], params[p + 1], params[p + 2], params[p + 3]);
+                    sink.arc(oval, params[p + 4], params[p + 5], params[p + 6], styles[i]);
+                    break;
+                case lineCommand:
+                    sink.line(params[p], params[p + 1], params[p + 2], params[p + 3], styles[i]);
+                    break;
+                case circleCommand:
+                    sink.circle(params[p], params[p + 1], params[p + 2], styles[i]);
+                    break;
+                case textCommand:
+                    sink.text(texts[i], params[p], params[p + 1], params[p + 2], styles[i]);
+                    break;
+            }
+        }
+    }
+
+    @Override
+    public void arc(ClockRect oval, float startAngle, float sweepAngle, float strokeWidth, int color) {
+        int p = add(arcCommand, color, null);
+        params[p] = oval.left;
+        params[p + 1] = oval.top;
+        params[p + 2] = oval.right;
+        params[p + 3] = oval.bottom;
+        params[p + 4] = startAngle;
+        params[p + 5] = sweepAngle;
+        params[p + 6] = strokeWidth;
+    }
+
+    @Override
+    public void line(float startX, float startY, float stopX, float stopY, int style) {
+        int p = add(lineCommand, style, null);
+        params[p] = startX;
+        params[p + 1] = startY;
+        params[p + 2] = stopX;
+        params[p + 3] = stopY;
+    }
+
+    @Override
+    public void circle(float centerX, float centerY, float radius, int style) {
+        int p = add(circleCommand, style, null);
+        params[p] = centerX;
+        params[p + 1] = centerY;
+        params[p + 2] = radius;
+    }
+
+    @Override
+    public void text(String text, float x, float y, float rotation, int style) {
+        int p = add(textCommand, style, text);
+        params[p] = x;
+        params[p + 1] = y;
+        params[p + 2] = rotation;
+    }
+
+    // Returns offset of the command params
+    private int add(int type, int style, String text) {
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            styles = Arrays.copyOf(styles, capacity);
+            params = Arrays.copyOf(params, capacity * paramsPerCommand);
+            texts = Arrays.copyOf(texts, capacity);
+        }
+        types[size] = type;
+        styles[size] = style;
+        texts[size] = text;
+        typeCounts[type]++;
+        return size++ * paramsPerCommand;
+    }
+}
@@ -0,0 +1,23 @@
+package com.opensource.roundcalendar;
+
+/*
+    Receives the draw commands emitted by ClockScene. Implemented by the Canvas backend on Android and by
+    DrawCommandList, which records commands on any JVM. Arcs carry their own color and stroke width, other commands
+    are drawn with one of the styles below.
+ */
+interface DrawCommandSink {
+
+    int styleBorder = 0;
+    int styleHand = 1;
+    int styleDigit = 2;
+    int styleTitle = 3;
+
+    void arc(ClockRect oval, float startAngle, float sweepAngle, float strokeWidth, int color);
+
+    void line(float startX, float startY, float stopX, float stopY, int style);
+
+    void circle(float centerX, float centerY, float radius, int style);
+
+    // Text is rotated by the given degrees around its origin
+    void text(String text, float x, float y, float rotation, int style);
+}
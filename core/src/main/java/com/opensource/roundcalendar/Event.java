@@ -0,0 +1,67 @@
+package com.opensource.roundcalendar;
+
+import java.util.Calendar;
+
+import lombok.Getter;
+
+class Event {
+
+    private static final int minutesInHalfDay = 12 * 60;
+
+    @Getter private String title;
+    private long start;
+    private long finish;
+    @Getter private boolean allDay;
+    @Getter private int color = ClockColors.transparent;
+
+    // Calendar fields of start and finish, calculated once instead of on every draw
+    @Getter private int startMinute; // minute of day
+    @Getter private int finishMinute;
+    @Getter private int startDate; // day of month
+    @Getter private int finishDate;
+
+    Event(String title, long start, long finish, long duration, boolean allDay, int color) {
+        this(title, start, finish, duration, allDay);
+        this.color = ClockColors.blend(color, ClockColors.black, 0.1f);
+    }
+
+    Event(String title, long start, long finish, long duration, boolean allDay) {
+        this.title = title;
+        this.start = start;
+        this.finish = (finish != 0) ? finish : (this.start + duration);
+        this.allDay = allDay;
+
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(this.start);
+        startMinute = minuteOfDay(calendar);
+        startDate = calendar.get(Calendar.DATE);
+        calendar.setTimeInMillis(this.finish);
+        finishMinute = minuteOfDay(calendar);
+        finishDate = calendar.get(Calendar.DATE);
+    }
+
+
+    long getStartTimeLong(){ return start;}
+
+    long getFinishTimeLong() {
+        return finish;
+    }
+
+    // relevant to know how to draw the arc of the event - up-down or down-up
+    boolean isFinishedInFirstDayHalf() {
+        return finishMinute < minutesInHalfDay;
+    }
+
+    boolean isSingleDate() {
+        return startDate == finishDate;
+    }
+
+    static int minuteOfDay(Calendar calendar) {
+        return calendar.get(Calendar.HOUR_OF_DAY) * 60 + calendar.get(Calendar.MINUTE);
+    }
+
+    boolean isEnd(int currentMinute)
+    {
+        return currentMinute > finishMinute && isSingleDate();
+    }
+}
@@ -0,0 +1,154 @@
+package com.opensource.roundcalendar;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.Getter;
+
+// Events of a day stored column-wise in parallel primitive arrays. Titles are kept in a deduplicated string table,
+// as recurring meetings repeat the same title many times. Built once per day load, so drawing the events on every
+// tick doesn't touch Event objects at all.
+class EventBuffer {
+
+    private static final int minutesInDay = 24 * 60;
+
+    private static final int flagAllDay = 1;
+    private static final int flagFinishedInFirstDayHalf = 1 << 1;
+    private static final int flagSingleDate = 1 << 2;
+    private static final int flagStartsBeforeDay = 1 << 3;
+    private static final int flagEndsAfterDay = 1 << 4;
+
+    private static final AtomicLong versions = new AtomicLong();
+
+    @Getter private final long version; // unique per buffer, so it can be compared without keeping the buffer
+    @Getter private final int size;
+    private final long[] startTimes;
+    private final long[] finishTimes;
+    private final int[] startMinutes; // minute of day
+    private final int[] finishMinutes;
+    private final int[] colors;
+    private final int[] flags;
+    private final int[] titleIndexes;
+    private final String[] titles;
+
+    // Events of the day from dayStart till dayEnd, the same bounds the events were queried with. The provider bounds
+    // are inclusive, so events which only touch the day - end at its start or start at its end - are left out.
+    EventBuffer(List<Event> queriedEvents, long dayStart, long dayEnd) {
+        List<Event> events = new ArrayList<>(queriedEvents.size());
+        for (Event event : queriedEvents) {
+            if (event.getFinishTimeLong() > dayStart && event.getStartTimeLong() < dayEnd) {
+                events.add(event);
+            }
+        }
+        version = versions.incrementAndGet();
+        size = events.size();
+        startTimes = new long[size];
+        finishTimes = new long[size];
+        startMinutes = new int[size];
+        finishMinutes = new int[size];
+        colors = new int[size];
+        flags = new int[size];
+        titleIndexes = new int[size];
+
+        List<String> titlesTable = new ArrayList<>();
+        Map<String, Integer> titlesLookup = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            Event event = events.get(i);
+            startTimes[i] = event.getStartTimeLong();
+            finishTimes[i] = event.getFinishTimeLong();
+            startMinutes[i] = event.getStartMinute();
+            finishMinutes[i] = event.getFinishMinute();
+            colors[i] = event.getColor();
+
+            int eventFlags = 0;
+            if (event.isAllDay()) {
+                eventFlags |= flagAllDay;
+            }
+            if (startTimes[i] < dayStart) {
+                eventFlags |= flagStartsBeforeDay;
+            }
+            if (finishTimes[i] >= dayEnd) {
+                eventFlags |= flagEndsAfterDay; // shown till midnight, so it doesn't finish in the first half
+            } else if (event.isFinishedInFirstDayHalf()) {
+                eventFlags |= flagFinishedInFirstDayHalf;
+            }
+            if (event.isSingleDate()) {
+                eventFlags |= flagSingleDate;
+            }
+            flags[i] = eventFlags;
+
+            String title = event.getTitle();
+            Integer titleIndex = titlesLookup.get(title);
+            if (titleIndex == null) {
+                titleIndex = titlesTable.size();
+                titlesTable.add(title);
+                titlesLookup.put(title, titleIndex);
+            }
+            titleIndexes[i] = titleIndex;
+        }
+        titles = titlesTable.toArray(new String[0]);
+    }
+
+    long getStartTime(int index) {
+        return startTimes[index];
+    }
+
+    long getFinishTime(int index) {
+        return finishTimes[index];
+    }
+
+    int getStartMinute(int index) {
+        return startMinutes[index];
+    }
+
+    int getFinishMinute(int index) {
+        return finishMinutes[index];
+    }
+
+    // Minute of day the event is shown from, midnight for events which started on a previous day
+    int getShownStartMinute(int index) {
+        return ((flags[index] & flagStartsBeforeDay) != 0) ? 0 : startMinutes[index];
+    }
+
+    // Minute of day the event is shown till, the end of the day for events which continue on the next day
+    int getShownFinishMinute(int index) {
+        return ((flags[index] & flagEndsAfterDay) != 0) ? minutesInDay : finishMinutes[index];
+    }
+
+    int getColor(int index) {
+        return colors[index];
+    }
+
+    boolean isAllDay(int index) {
+        return (flags[index] & flagAllDay) != 0;
+    }
+
+    // relevant to know how to draw the arc of the event - up-down or down-up
+    boolean isFinishedInFirstDayHalf(int index) {
+        return (flags[index] & flagFinishedInFirstDayHalf) != 0;
+    }
+
+    boolean isSingleDate(int index) {
+        return (flags[index] & flagSingleDate) != 0;
+    }
+
+    boolean isEnd(int index, int currentMinute) {
+        return currentMinute > finishMinutes[index] && isSingleDate(index);
+    }
+
+    String getTitle(int index) {
+        return titles[titleIndexes[index]];
+    }
+
+    // Index in the titles table, equal for events with the same title
+    int getTitleIndex(int index) {
+        return titleIndexes[index];
+    }
+
+    int getTitlesCount() {
+        return titles.length;
+    }
+}
@@ -0,0 +1,90 @@
+package com.opensource.roundcalendar;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/*
+    Splits the events ring into concentric lanes, so that overlapping events don't hide each other.
+    Events are swept in start time order: the lane of an event which already finished is reused, otherwise a new lane
+    is opened. Events which overlap each other, directly or through other events, form a cluster and share its lanes
+    count. Sorting and both heaps make it O(n log n). All-day events are not laid out. Events crossing midnight take
+    only their part of the shown day, as they are drawn.
+ */
+class EventLayout {
+
+    private static final int minutesInDay = 24 * 60;
+
+    private int[] lanes = new int[0];
+    private int[] laneCounts = new int[0];
+
+    void layout(EventBuffer events) {
+        int eventsCount = events.getSize();
+        if (lanes.length < eventsCount) {
+            lanes = new int[eventsCount];
+            laneCounts = new int[eventsCount];
+        }
+
+        // (start minute, index) packed into one long, so a primitive sort orders events by start
+        long[] order = new long[eventsCount];
+        int timedCount = 0;
+        for (int i = 0; i < eventsCount; i++) {
+            lanes[i] = -1;
+            laneCounts[i] = 0;
+            if (!events.isAllDay(i)) {
+                order[timedCount++] = ((long) events.getShownStartMinute(i) << 32) | i;
+            }
+        }
+        Arrays.sort(order, 0, timedCount);
+
+        PriorityQueue<Long> activeEvents = new PriorityQueue<>(); // (finish minute, lane) packed into one long
+        PriorityQueue<Integer> freeLanes = new PriorityQueue<>();
+        int[] cluster = new int[timedCount];
+        int clusterSize = 0;
+        int clusterLanes = 0;
+        for (int i = 0; i < timedCount; i++) {
+            int index = (int) order[i];
+            int start = events.getShownStartMinute(index);
+
+            while (!activeEvents.isEmpty() && (int) (activeEvents.peek() >> 32) <= start) {
+                freeLanes.add((int) (long) activeEvents.poll());
+            }
+            if (activeEvents.isEmpty()) {
+                finishCluster(cluster, clusterSize, clusterLanes);
+                clusterSize = 0;
+                clusterLanes = 0;
+                freeLanes.clear();
+            }
+
+            int lane = freeLanes.isEmpty() ? clusterLanes++ : freeLanes.poll();
+            lanes[index] = lane;
+            cluster[clusterSize++] = index;
+            activeEvents.add(((long) getFinishMinute(events, index) << 32) | lane);
+        }
+        finishCluster(cluster, clusterSize, clusterLanes);
+    }
+
+    // Lane of the event, 0 is the outer one. -1 for all-day events.
+    int getLane(int index) {
+        return lanes[index];
+    }
+
+    // Lanes count of the overlapping events cluster the event belongs to
+    int getLaneCount(int index) {
+        return laneCounts[index];
+    }
+
+    private void finishCluster(int[] cluster, int clusterSize, int clusterLanes) {
+        for (int i = 0; i < clusterSize; i++) {
+            laneCounts[cluster[i]] = clusterLanes;
+        }
+    }
+
+    private static int getFinishMinute(EventBuffer events, int index) {
+        int start = events.getShownStartMinute(index);
+        int finish = events.getShownFinishMinute(index);
+        if (finish < start) {
+            return minutesInDay; // only possible around daylight saving time changes
+        }
+        return Math.max(finish, start + 1); // zero duration event still takes its place on the ring
+    }
+}
@@ -0,0 +1,16 @@
+package com.opensource.roundcalendar;
+
+import lombok.Getter;
+
+// Text fitted into a width (ellipsized, if needed) together with its bounds
+class MeasuredText {
+    @Getter private final String text;
+    @Getter private final int width;
+    @Getter private final int height;
+
+    MeasuredText(String text, int width, int height) {
+        this.text = text;
+        this.width = width;
+        this.height = height;
+    }
+}
@@ -0,0 +1,159 @@
+package com.opensource.roundcalendar;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+    RFC 5545 (3.3.6) duration value:
+        dur-value  = (["+"] / "-") "P" (dur-date / dur-time / dur-week)
+        dur-date   = dur-day [dur-time]
+        dur-time   = "T" (dur-hour / dur-minute / dur-second)
+        dur-week   = 1*DIGIT "W"
+        dur-hour   = 1*DIGIT "H" [dur-minute]
+        dur-minute = 1*DIGIT "M" [dur-second]
+        dur-second = 1*DIGIT "S"
+        dur-day    = 1*DIGIT "D"
+    Android calendar provider writes time entries without the "T" separator (e.g. "P3600S"), so the separator may be
+    omitted: "P1H30M" is read as "PT1H30M". The only exception is minutes as the first entry, "P1M" is a month in
+    ISO 8601 and is rejected. Minutes after another entry can't be months, as months would go before days.
+ */
+class Rfc5545Duration {
+
+    // Recurring events share a handful of distinct DURATION strings, like "P3600S" or "P1D"
+    private static final int memoSize = 16;
+    private static final Map<String, Long> memo = new LinkedHashMap<String, Long>(memoSize, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > memoSize;
+        }
+    };
+
+    private static final long secondMillis = 1000;
+    private static final long minuteMillis = 60 * secondMillis;
+    private static final long hourMillis = 60 * minuteMillis;
+    private static final long dayMillis = 24 * hourMillis;
+    private static final long weekMillis = 7 * dayMillis;
+
+    // designators in the order they may appear
+    private static final int orderWeeks = 0;
+    private static final int orderDays = 1;
+    private static final int orderHours = 2;
+    private static final int orderMinutes = 3;
+    private static final int orderSeconds = 4;
+
+    static long toMilliSeconds(String duration) throws IllegalArgumentException {
+        if (duration == null || duration.isEmpty()) {
+            throw new IllegalArgumentException("Duration should be not empty");
+        }
+
+        synchronized (memo) {
+            Long milliSeconds = memo.get(duration);
+            if (milliSeconds != null) {
+                return milliSeconds;
+            }
+        }
+
+        long milliSeconds = parse(duration);
+        synchronized (memo) {
+            memo.put(duration, milliSeconds);
+        }
+        return milliSeconds;
+    }
+
+    // Single pass over the string, doesn't allocate unless the string is malformed
+    private static long parse(String duration) throws IllegalArgumentException {
+        final int length = duration.length();
+        int position = 0;
+        long sign = 1;
+        char symbol = duration.charAt(position);
+        if (symbol == '+' || symbol == '-') {
+            sign = (symbol == '-') ? -1 : 1;
+            position++;
+        }
+        if (position >= length || duration.charAt(position) != 'P') {
+            throw new IllegalArgumentException("Duration string should start with \"P\" prefix: \"" + duration + "\"");
+        }
+        position++;
+
+        boolean timePart = false;
+        boolean hasTimeEntries = false;
+        int lastOrder = -1;
+        long milliSeconds = 0;
+        while (position < length) {
+            symbol = duration.charAt(position);
+            if (symbol == 'T') {
+                if (timePart) {
+                    throw malformed(duration);
+                }
+                timePart = true;
+                position++;
+                continue;
+            }
+
+            int digitsStart = position;
+            long count = 0;
+            while (position < length && (symbol = duration.charAt(position)) >= '0' && symbol <= '9') {
+                if (count > (Long.MAX_VALUE - 9) / 10) {
+                    throw new IllegalArgumentException("Duration is too long: \"" + duration + "\"");
+                }
+                count = count * 10 + (symbol - '0');
+                position++;
+            }
+            if (position == digitsStart || position == length) {
+                throw malformed(duration); // no digits or no designator after them
+            }
+
+            final int order;
+            final long unitMillis;
+            switch (duration.charAt(position)) {
+                case 'W':
+                    order = orderWeeks;
+                    unitMillis = weekMillis;
+                    break;
+                case 'D':
+                    order = orderDays;
+                    unitMillis = dayMillis;
+                    break;
+                case 'H':
+                    order = orderHours;
+                    unitMillis = hourMillis;
+                    break;
+                case 'M':
+                    if (!timePart && lastOrder == -1) {
+                        throw new IllegalArgumentException("Months are not allowed in duration: \"" + duration + "\"");
+                    }
+                    order = orderMinutes;
+                    unitMillis = minuteMillis;
+                    break;
+                case 'S':
+                    order = orderSeconds;
+                    unitMillis = secondMillis;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown dimension in duration: \"" + duration + "\"");
+            }
+            position++;
+
+            boolean dateEntryInTimePart = timePart && (order == orderWeeks || order == orderDays);
+            boolean weeksWithOtherEntries = (order == orderWeeks) ? (lastOrder != -1) : (lastOrder == orderWeeks);
+            if (order <= lastOrder || dateEntryInTimePart || weeksWithOtherEntries) {
+                throw malformed(duration);
+            }
+            if (count > (Long.MAX_VALUE - milliSeconds) / unitMillis) {
+                throw new IllegalArgumentException("Duration is too long: \"" + duration + "\"");
+            }
+            milliSeconds += count * unitMillis;
+            lastOrder = order;
+            hasTimeEntries |= timePart;
+        }
+
+        if (lastOrder == -1 || (timePart && !hasTimeEntries)) {
+            throw malformed(duration);
+        }
+        return sign * milliSeconds;
+    }
+
+    private static IllegalArgumentException malformed(String duration) {
+        return new IllegalArgumentException("Malformed duration string: \"" + duration + "\"");
+    }
+}
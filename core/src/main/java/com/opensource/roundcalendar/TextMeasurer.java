@@ -0,0 +1,6 @@
+package com.opensource.roundcalendar;
+
+// Measures event titles for the layout, backed by Paint on Android
+interface TextMeasurer {
+    MeasuredText fit(String text, float maxWidth);
+}
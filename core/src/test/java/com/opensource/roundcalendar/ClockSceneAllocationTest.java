@@ -0,0 +1,65 @@
+package com.opensource.roundcalendar;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static com.opensource.roundcalendar.TestEvents.allDay;
+import static com.opensource.roundcalendar.TestEvents.at;
+import static com.opensource.roundcalendar.TestEvents.buffer;
+import static com.opensource.roundcalendar.TestEvents.timed;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+// Once warm (same widget, same events), laying out the whole clock must not allocate
+public class ClockSceneAllocationTest {
+
+    private static final int currentMinute = 12 * 60;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final DrawCommandList commands = new DrawCommandList();
+    private ClockScene scene;
+    private EventBuffer events;
+
+    @Before
+    public void setUp() {
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        scene = new ClockScene(ClockGeometry.get(540, 540, 2.625f), new FixedWidthTextMeasurer(), true);
+        events = buffer(
+                allDay("Holiday", 0),
+                timed("Standup", at(9, 30), at(9, 45)),
+                timed("Planning", at(9, 0), at(11, 0)),
+                timed("Review", at(10, 30), at(12, 0)),
+                timed("Lunch", at(12, 0), at(13, 0)),
+                timed("Retro", at(16, 0), at(17, 0)));
+    }
+
+    @Test
+    public void warmSceneDoesNotAllocate() {
+        emitScene(); // cold: lanes, fitted titles and all-day text are calculated, command arrays grow
+        emitScene();
+
+        long start = getAllocatedBytes();
+        long measurement = getAllocatedBytes() - start; // cost of the measurement itself
+        long before = getAllocatedBytes();
+        emitScene();
+        long allocated = getAllocatedBytes() - before - measurement;
+        assertEquals("Bytes allocated by the warm scene", 0, allocated);
+    }
+
+    private void emitScene() {
+        commands.clear();
+        scene.emitDial(commands);
+        scene.getEventsFingerprint(events, currentMinute, false);
+        scene.emitEvents(commands, events, currentMinute, false);
+        scene.getAllDayText(events);
+        scene.emitHand(commands, currentMinute);
+    }
+
+    private long getAllocatedBytes() {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
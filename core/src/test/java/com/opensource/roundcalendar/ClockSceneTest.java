@@ -0,0 +1,147 @@
+package com.opensource.roundcalendar;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.opensource.roundcalendar.TestEvents.allDay;
+import static com.opensource.roundcalendar.TestEvents.at;
+import static com.opensource.roundcalendar.TestEvents.buffer;
+import static com.opensource.roundcalendar.TestEvents.timed;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+// Scenes are recorded into a DrawCommandList and replayed into a sink which keeps what the canvas would draw
+public class ClockSceneTest {
+
+    private static final float delta = 0.01f;
+
+    private final ClockGeometry geometry = ClockGeometry.get(540, 540, 2.625f);
+    private final DrawCommandList commands = new DrawCommandList();
+    private final ReplayedScene replayed = new ReplayedScene();
+    private ClockScene scene;
+
+    @Before
+    public void setUp() {
+        scene = new ClockScene(geometry, new FixedWidthTextMeasurer(), true);
+    }
+
+    @Test
+    public void emitsDial() {
+        scene.emitDial(commands);
+        commands.replay(replayed);
+
+        assertEquals(1, commands.getCount(DrawCommandList.arcCommand)); // ring
+        assertEquals(1, commands.getCount(DrawCommandList.circleCommand)); // border
+        assertEquals(geometry.getHourMarkersCoordinates().size(), commands.getCount(DrawCommandList.lineCommand));
+        assertEquals(8, commands.getCount(DrawCommandList.textCommand)); // every third hour
+        assertEquals(-90, replayed.arcStarts.get(0), delta);
+        assertEquals(360, replayed.arcSweeps.get(0), delta);
+        assertEquals(DrawCommandList.arcCommand, commands.getType(0));
+
+        List<String> digits = new ArrayList<>();
+        for (int i = 0; i < commands.getSize(); i++) {
+            if (commands.getType(i) == DrawCommandList.textCommand) {
+                digits.add(commands.getText(i));
+            }
+        }
+        assertEquals(digits, replayed.texts);
+        assertEquals("0", digits.get(0));
+        assertEquals("21", digits.get(7));
+    }
+
+    @Test
+    public void emitsEventArcsAndTitles() {
+        scene.emitEvents(commands, buffer(
+                allDay("Holiday", 0),
+                timed("Standup", at(9, 0), at(10, 0)),
+                timed("Retro", at(18, 0), at(19, 30))), 12 * 60, false);
+        commands.replay(replayed);
+
+        assertEquals(4, commands.getCount(DrawCommandList.arcCommand)); // two arcs per timed event
+        assertEquals(2, commands.getCount(DrawCommandList.textCommand));
+        assertTrue(replayed.texts.contains("Standup"));
+        assertTrue(replayed.texts.contains("Retro"));
+        assertEquals(9 * 15 - 90, replayed.arcStarts.get(0), delta);
+        assertEquals(15, replayed.arcSweeps.get(0), delta);
+        assertEquals(18 * 15 - 90, replayed.arcStarts.get(2), delta);
+        assertEquals(22.5f, replayed.arcSweeps.get(2), delta);
+    }
+
+    @Test
+    public void graysOutEndedEventsOfToday() {
+        EventBuffer events = buffer(
+                timed("Standup", at(9, 0), at(10, 0)),
+                timed("Retro", at(18, 0), at(19, 30)));
+        scene.emitEvents(commands, events, 12 * 60, false);
+        commands.replay(replayed);
+        assertEquals(ClockColors.gray & 0xFFFFFF, replayed.arcColors.get(0) & 0xFFFFFF);
+        assertNotEquals(ClockColors.gray & 0xFFFFFF, replayed.arcColors.get(2) & 0xFFFFFF);
+
+        // another day is shown, so nothing is ended
+        replayed.clear();
+        commands.clear();
+        scene.emitEvents(commands, events, 12 * 60, true);
+        commands.replay(replayed);
+        assertNotEquals(ClockColors.gray & 0xFFFFFF, replayed.arcColors.get(0) & 0xFFFFFF);
+    }
+
+    @Test
+    public void emitsHandTowardsTheMinute() {
+        ClockPoint center = geometry.getCenter();
+        scene.emitHand(commands, 6 * 60); // 6:00 is on the right of the 24 hours dial
+        commands.replay(replayed);
+
+        assertEquals(1, commands.getSize());
+        assertEquals(DrawCommandList.lineCommand, commands.getType(0));
+        assertEquals(DrawCommandSink.styleHand, (int) replayed.lineStyles.get(0));
+        float[] hand = replayed.lines.get(0);
+        assertTrue(hand[0] > center.x);
+        assertTrue(hand[2] > hand[0]);
+        assertEquals(center.y, hand[1], 1);
+        assertEquals(center.y, hand[3], 1);
+    }
+
+    private static class ReplayedScene implements DrawCommandSink {
+        final List<Float> arcStarts = new ArrayList<>();
+        final List<Float> arcSweeps = new ArrayList<>();
+        final List<Integer> arcColors = new ArrayList<>();
+        final List<float[]> lines = new ArrayList<>();
+        final List<Integer> lineStyles = new ArrayList<>();
+        final List<String> texts = new ArrayList<>();
+
+        void clear() {
+            arcStarts.clear();
+            arcSweeps.clear();
+            arcColors.clear();
+            lines.clear();
+            lineStyles.clear();
+            texts.clear();
+        }
+
+        @Override
+        public void arc(ClockRect oval, float startAngle, float sweepAngle, float strokeWidth, int color) {
+            arcStarts.add(startAngle);
+            arcSweeps.add(sweepAngle);
+            arcColors.add(color);
+        }
+
+        @Override
+        public void line(float startX, float startY, float stopX, float stopY, int style) {
+            lines.add(new float[] {startX, startY, stopX, stopY});
+            lineStyles.add(style);
+        }
+
+        @Override
+        public void circle(float centerX, float centerY, float radius, int style) {
+        }
+
+        @Override
+        public void text(String text, float x, float y, float rotation, int style) {
+            texts.add(text);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.opensource.roundcalendar;
+
+import org.junit.Test;
+
+import static com.opensource.roundcalendar.TestEvents.allDay;
+import static com.opensource.roundcalendar.TestEvents.at;
+import static com.opensource.roundcalendar.TestEvents.day;
+import static com.opensource.roundcalendar.TestEvents.timed;
+import static org.junit.Assert.assertEquals;
+
+public class DayEventsTest {
+
+    private final DayEvents events = day(
+            timed("Standup", at(9, 30), at(9, 45)),
+            timed("Review", at(14, 0), at(15, 0)),
+            timed("Lunch", at(12, 0), at(13, 0)));
+
+    @Test
+    public void findsNextStartNotBeforeTime() {
+        assertEquals(at(9, 30), events.findNextStartTime(at(8, 0)));
+        assertEquals(at(12, 0), events.findNextStartTime(at(9, 31)));
+        assertEquals(at(14, 0), events.findNextStartTime(at(14, 0)));
+    }
+
+    @Test
+    public void findsNoStartAfterLastEvent() {
+        assertEquals(0, events.findNextStartTime(at(14, 1)));
+        assertEquals(0, day().findNextStartTime(at(0, 0)));
+    }
+
+    @Test
+    public void findsNextChangeStrictlyAfterTime() {
+        assertEquals(at(9, 30), events.findNextChange(at(9, 0)));
+        assertEquals(at(9, 46), events.findNextChange(at(9, 30))); // standup is shown as ended the minute after
+        assertEquals(at(12, 0), events.findNextChange(at(9, 46)));
+        assertEquals(at(15, 1), events.findNextChange(at(14, 0)));
+    }
+
+    @Test
+    public void findsNoChangeAfterLastEnd() {
+        assertEquals(0, events.findNextChange(at(15, 1)));
+        assertEquals(0, day().findNextChange(at(0, 0)));
+    }
+
+    @Test
+    public void ignoresEndsOfEventsContinuingNextDay() {
+        DayEvents overnight = day(timed("Flight", at(22, 0), at(1, 6, 0)));
+        assertEquals(at(22, 0), overnight.findNextChange(at(21, 0)));
+        assertEquals(0, overnight.findNextChange(at(22, 0)));
+    }
+
+    @Test
+    public void followsRecurringInstanceTimes() {
+        // daily standup, which series started a month ago: only this day's instance schedules ticks
+        DayEvents seriesStart = day(timed("Standup", at(-30, 9, 30), at(-30, 9, 45)));
+        assertEquals(0, seriesStart.findNextStartTime(at(9, 0)));
+        assertEquals(0, seriesStart.findNextChange(at(9, 0)));
+
+        DayEvents instance = day(timed("Standup", at(9, 30), at(9, 45)));
+        assertEquals(at(9, 30), instance.findNextStartTime(at(9, 0)));
+        assertEquals(at(9, 30), instance.findNextChange(at(9, 0)));
+        assertEquals(at(9, 46), instance.findNextChange(at(9, 30)));
+    }
+
+    @Test
+    public void skipsAllDayEventsStarts() {
+        // tomorrow's events, as looked up for the countdown in the evening
+        DayEvents tomorrow = day(1,
+                allDay("Holiday", 1),
+                timed("Breakfast", at(1, 8, 0), at(1, 8, 30)));
+        assertEquals(at(1, 8, 0), tomorrow.findNextStartTime(at(0, 18, 0)));
+        assertEquals(at(1, 8, 0), tomorrow.findNextChange(at(0, 18, 0)));
+    }
+}
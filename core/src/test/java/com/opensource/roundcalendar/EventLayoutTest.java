@@ -0,0 +1,147 @@
+package com.opensource.roundcalendar;
+
+import org.junit.Test;
+
+import static com.opensource.roundcalendar.TestEvents.allDay;
+import static com.opensource.roundcalendar.TestEvents.at;
+import static com.opensource.roundcalendar.TestEvents.buffer;
+import static com.opensource.roundcalendar.TestEvents.timed;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class EventLayoutTest {
+
+    private final EventLayout layout = new EventLayout();
+
+    @Test
+    public void keepsSeparateEventsInOneLane() {
+        layout.layout(buffer(
+                timed("A", at(9, 0), at(10, 0)),
+                timed("B", at(10, 0), at(11, 0)), // starts when A finishes
+                timed("C", at(13, 0), at(14, 0))));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, layout.getLane(i));
+            assertEquals(1, layout.getLaneCount(i));
+        }
+    }
+
+    @Test
+    public void splitsOverlappingEventsToLanes() {
+        layout.layout(buffer(
+                timed("A", at(9, 0), at(11, 0)),
+                timed("B", at(10, 0), at(12, 0)),
+                timed("C", at(11, 0), at(13, 0)), // overlaps only B, takes the lane A has freed
+                timed("D", at(15, 0), at(16, 0))));
+        assertEquals(0, layout.getLane(0));
+        assertEquals(1, layout.getLane(1));
+        assertEquals(0, layout.getLane(2));
+        assertEquals(2, layout.getLaneCount(0));
+        assertEquals(2, layout.getLaneCount(1));
+        assertEquals(2, layout.getLaneCount(2));
+        assertEquals(0, layout.getLane(3));
+        assertEquals(1, layout.getLaneCount(3));
+    }
+
+    @Test
+    public void layoutIsIndependentOfEventsOrder() {
+        layout.layout(buffer(
+                timed("C", at(11, 0), at(13, 0)),
+                timed("A", at(9, 0), at(11, 0)),
+                timed("B", at(10, 0), at(12, 0))));
+        assertEquals(0, layout.getLane(1));
+        assertEquals(1, layout.getLane(2));
+        assertEquals(0, layout.getLane(0));
+    }
+
+    @Test
+    public void givesZeroDurationEventsTheirPlace() {
+        layout.layout(buffer(
+                timed("Reminder", at(9, 0), at(9, 0)),
+                timed("Call", at(9, 0), at(9, 30))));
+        assertEquals(2, layout.getLaneCount(0));
+        assertEquals(2, layout.getLaneCount(1));
+    }
+
+    @Test
+    public void skipsAllDayEvents() {
+        layout.layout(buffer(
+                allDay("Holiday", 0),
+                timed("A", at(9, 0), at(10, 0))));
+        assertEquals(-1, layout.getLane(0));
+        assertEquals(0, layout.getLaneCount(0));
+        assertEquals(0, layout.getLane(1));
+        assertEquals(1, layout.getLaneCount(1));
+    }
+
+    @Test
+    public void laysEventFromPreviousDayOutFromMidnight() {
+        layout.layout(buffer(
+                timed("Night shift", at(-1, 22, 0), at(10, 10)),
+                timed("Meeting", at(10, 0), at(11, 0)),
+                timed("Late call", at(22, 30), at(23, 0))));
+        assertEquals(0, layout.getLane(0));
+        assertEquals(1, layout.getLane(1));
+        assertEquals(2, layout.getLaneCount(0));
+        assertEquals(2, layout.getLaneCount(1));
+        assertEquals(0, layout.getLane(2));
+        assertEquals(1, layout.getLaneCount(2));
+    }
+
+    @Test
+    public void laysEventContinuingNextDayOutTillMidnight() {
+        layout.layout(buffer(
+                timed("Party", at(22, 0), at(1, 2, 0)),
+                timed("Early call", at(0, 30), at(1, 0)),
+                timed("Toast", at(23, 0), at(23, 15))));
+        assertEquals(1, layout.getLaneCount(1)); // doesn't meet the party, which is shown from 22:00 only
+        assertEquals(0, layout.getLane(0));
+        assertEquals(1, layout.getLane(2));
+        assertEquals(2, layout.getLaneCount(0));
+    }
+
+    @Test
+    public void clampsShownMinutesToTheDay() {
+        EventBuffer events = buffer(
+                timed("Night shift", at(-1, 22, 0), at(10, 10)),
+                timed("Party", at(22, 0), at(1, 2, 0)),
+                timed("Conference", at(-1, 9, 0), at(1, 18, 0)));
+        assertEquals(0, events.getShownStartMinute(0));
+        assertEquals(10 * 60 + 10, events.getShownFinishMinute(0));
+        assertEquals(22 * 60, events.getShownStartMinute(1));
+        assertEquals(24 * 60, events.getShownFinishMinute(1));
+        assertEquals(0, events.getShownStartMinute(2));
+        assertEquals(24 * 60, events.getShownFinishMinute(2));
+    }
+
+    @Test
+    public void leavesOutEventsTouchingMidnight() {
+        EventBuffer events = buffer(
+                timed("Late call", at(-1, 23, 0), at(0, 0)),
+                timed("Meeting", at(10, 0), at(11, 0)),
+                timed("Early call", at(1, 0, 0), at(1, 1, 0)));
+        assertEquals(1, events.getSize());
+        assertEquals("Meeting", events.getTitle(0));
+    }
+
+    @Test
+    public void showsEventTillNextMidnight() {
+        EventBuffer events = buffer(timed("Evening", at(20, 0), at(1, 0, 0)));
+        assertEquals(20 * 60, events.getShownStartMinute(0));
+        assertEquals(24 * 60, events.getShownFinishMinute(0));
+        assertFalse(events.isFinishedInFirstDayHalf(0));
+    }
+
+    @Test
+    public void laysRecurringInstanceOutAtItsOwnMinutes() {
+        // daily standup, which series started a month ago: bounds of its first instance are not shown on this day
+        assertEquals(0, buffer(timed("Standup", at(-30, 9, 30), at(-30, 9, 45))).getSize());
+
+        EventBuffer events = buffer(
+                timed("Night shift", at(-1, 22, 0), at(8, 0)),
+                timed("Standup", at(9, 30), at(9, 45)));
+        layout.layout(events);
+        assertEquals(9 * 60 + 30, events.getShownStartMinute(1));
+        assertEquals(0, layout.getLane(1));
+        assertEquals(1, layout.getLaneCount(1)); // not in the lane cluster of events shown from midnight
+    }
+}
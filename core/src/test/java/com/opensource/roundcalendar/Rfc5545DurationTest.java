@@ -0,0 +1,88 @@
+package com.opensource.roundcalendar;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class Rfc5545DurationTest {
+
+    private static final long second = 1000;
+    private static final long minute = 60 * second;
+    private static final long hour = 60 * minute;
+    private static final long day = 24 * hour;
+
+    @Test
+    public void parsesDateAndTimeEntries() {
+        assertEquals(day, Rfc5545Duration.toMilliSeconds("P1D"));
+        assertEquals(2 * 7 * day, Rfc5545Duration.toMilliSeconds("P2W"));
+        assertEquals(hour + 30 * minute, Rfc5545Duration.toMilliSeconds("PT1H30M"));
+        assertEquals(day + 2 * hour + 3 * minute + 4 * second, Rfc5545Duration.toMilliSeconds("P1DT2H3M4S"));
+        assertEquals(15 * second, Rfc5545Duration.toMilliSeconds("PT15S"));
+    }
+
+    @Test
+    public void appliesSign() {
+        assertEquals(-15 * minute, Rfc5545Duration.toMilliSeconds("-PT15M"));
+        assertEquals(day, Rfc5545Duration.toMilliSeconds("+P1D"));
+    }
+
+    @Test
+    public void acceptsProviderDurationsWithoutTimeSeparator() {
+        assertEquals(hour, Rfc5545Duration.toMilliSeconds("P3600S"));
+        assertEquals(hour, Rfc5545Duration.toMilliSeconds("P1H"));
+        assertEquals(hour + 30 * minute, Rfc5545Duration.toMilliSeconds("P1H30M"));
+        assertEquals(hour + 30 * minute + 15 * second, Rfc5545Duration.toMilliSeconds("P1H30M15S"));
+        assertEquals(day + 30 * minute, Rfc5545Duration.toMilliSeconds("P1D30M"));
+    }
+
+    @Test
+    public void returnsTheSameValueFromMemo() {
+        assertEquals(90 * second, Rfc5545Duration.toMilliSeconds("P90S"));
+        assertEquals(90 * second, Rfc5545Duration.toMilliSeconds("P90S"));
+    }
+
+    @Test
+    public void rejectsEmptyDuration() {
+        assertMalformed(null);
+        assertMalformed("");
+    }
+
+    @Test
+    public void rejectsMalformedDurations() {
+        assertMalformed("1H"); // no prefix
+        assertMalformed("P");
+        assertMalformed("PT");
+        assertMalformed("PD");
+        assertMalformed("P1");
+        assertMalformed("P1X");
+        assertMalformed("PT1D"); // date entry in time part
+        assertMalformed("PT1H2H");
+        assertMalformed("PT30M1H"); // wrong order
+        assertMalformed("P1W1D"); // weeks can't be combined
+        assertMalformed("P1DT1HT1M");
+    }
+
+    @Test
+    public void rejectsMonths() {
+        assertMalformed("P1M");
+        assertMalformed("P1M1D");
+        assertMalformed("-P2M");
+    }
+
+    @Test
+    public void rejectsOverflow() {
+        assertMalformed("PT99999999999999999999S"); // too many digits for long
+        assertMalformed("P99999999999999W"); // fits long, but not in milliseconds
+        assertMalformed("P" + (Long.MAX_VALUE / day) + "DT24H");
+    }
+
+    private static void assertMalformed(String duration) {
+        try {
+            Rfc5545Duration.toMilliSeconds(duration);
+            fail("Accepted \"" + duration + "\"");
+        } catch (IllegalArgumentException expected) {
+            // malformed
+        }
+    }
+}
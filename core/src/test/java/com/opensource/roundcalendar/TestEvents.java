@@ -0,0 +1,51 @@
+package com.opensource.roundcalendar;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+// Events of a fixed day in the default time zone, so minutes of day in tests read like wall clock time
+final class TestEvents {
+
+    private static final long dayMillis = 24 * 60 * 60_000;
+
+    private TestEvents() {
+    }
+
+    // Wall clock time of the test day, dayOffset moves to the surrounding days
+    static long at(int dayOffset, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(2021, Calendar.MARCH, 10 + dayOffset, hour, minute, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    static long at(int hour, int minute) {
+        return at(0, hour, minute);
+    }
+
+    static Event timed(String title, long start, long finish) {
+        return new Event(title, start, finish, 0, false);
+    }
+
+    // Calendar provider keeps all-day instances from UTC midnight to UTC midnight
+    static Event allDay(String title, int dayOffset) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        calendar.clear();
+        calendar.set(2021, Calendar.MARCH, 10 + dayOffset);
+        long start = calendar.getTimeInMillis();
+        return new Event(title, start, start + dayMillis, 0, true);
+    }
+
+    static DayEvents day(Event... events) {
+        return day(0, events);
+    }
+
+    static DayEvents day(int dayOffset, Event... events) {
+        return new DayEvents(Arrays.asList(events), at(dayOffset, 0, 0), at(dayOffset + 1, 0, 0));
+    }
+
+    static EventBuffer buffer(Event... events) {
+        return day(events).getEventBuffer();
+    }
+}
@@ -0,0 +1,16 @@
+package com.opensource.roundcalendar;
+
+// Measures text as a monospace font, fitting titles by cutting them to the width. Close enough to Paint for the layout
+// tests and benchmarks, which share it.
+final class FixedWidthTextMeasurer implements TextMeasurer {
+
+    private static final int symbolWidth = 7;
+    private static final int symbolHeight = 10;
+
+    @Override
+    public MeasuredText fit(String text, float maxWidth) {
+        int fittedLength = Math.min(text.length(), (int) (maxWidth / symbolWidth));
+        String fitted = (fittedLength < text.length()) ? text.substring(0, fittedLength) : text;
+        return new MeasuredText(fitted, fitted.length() * symbolWidth, symbolHeight);
+    }
+}